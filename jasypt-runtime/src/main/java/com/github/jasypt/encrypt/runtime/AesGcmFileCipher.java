@@ -0,0 +1,230 @@
+package com.github.jasypt.encrypt.runtime;
+
+import org.jasypt.exceptions.EncryptionInitializationException;
+import org.jasypt.exceptions.EncryptionOperationNotPossibleException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import static com.github.jasypt.encrypt.runtime.AesGcmStringEncryptor.SALT_LENGTH;
+import static com.github.jasypt.encrypt.runtime.AesGcmStringEncryptor.TAG_LENGTH_BITS;
+
+/**
+ * Encrypts files of any size in a single pass with constant memory, for keystores, certificates and other binary secrets.
+ * The content is split into segments that are encrypted one by one with AES-256-GCM. The nonce of every segment is
+ * a random prefix of the file, the segment index and a flag for the last segment, so reordered, dropped or truncated
+ * segments fail authentication.
+ * <p>
+ * Encrypted file layout, integers are big-endian:
+ * <pre>
+ * | magic "JENC" (4 bytes) | version (1 byte, 0x01) | segment size (4 bytes) | key obtention iterations (4 bytes) |
+ * | salt (16 bytes) | nonce prefix (7 bytes) | segment ciphertext + GCM tag (16 bytes) | ... |
+ * </pre>
+ * Every segment but the last one has exactly segment size plain bytes, the last one can be empty. The key is
+ * {@code PBKDF2WithHmacSHA512(password, salt, key-obtention-iterations, 256 bit)}, derived once per file, and the header
+ * is authenticated as additional data of every segment. Decryption reads the iterations from the header, so files
+ * can be decrypted after the configuration has changed. The header is only authenticated after the key is derived, so
+ * files with more than {@link #MAX_ITERATIONS_FACTOR} times the configured iterations are rejected up front.
+ * <p>
+ * Decrypted segments are written as soon as they are authenticated, so the output of a file that fails later on
+ * has to be discarded. Instances are thread-safe.
+ */
+public final class AesGcmFileCipher {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+    public static final int MIN_SEGMENT_SIZE = 1024;
+    public static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int MAX_ITERATIONS_FACTOR = 10;
+
+    private static final byte[] MAGIC = {'J', 'E', 'N', 'C'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int NONCE_LENGTH = NONCE_PREFIX_LENGTH + 5;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 4 + 4 + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+    private static final int TAG_LENGTH = TAG_LENGTH_BITS / 8;
+    private static final long MAX_SEGMENT_COUNT = 0xFFFFFFFFL;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final char[] password;
+    private final int keyObtentionIterations;
+    private final String providerName;
+
+    /**
+     * @param keyObtentionIterations used for encryption, decryption takes them from the file header up to
+     *                               {@link #MAX_ITERATIONS_FACTOR} times this count
+     * @param providerName           JCE provider of the cipher, {@code null} for the default one
+     */
+    public AesGcmFileCipher(String password, int keyObtentionIterations, String providerName) {
+        if (password == null || password.isEmpty()) {
+            throw new EncryptionInitializationException("Password cannot be empty");
+        }
+        this.password = password.toCharArray();
+        this.keyObtentionIterations = keyObtentionIterations;
+        this.providerName = providerName;
+    }
+
+    public static AesGcmFileCipher fromConfig(JasyptConfig config, String password) {
+        return new AesGcmFileCipher(password, Integer.parseInt(config.getKeyObtentionIterations()), config.getProviderName());
+    }
+
+    /**
+     * @param segmentSize plain bytes per segment, between {@link #MIN_SEGMENT_SIZE} and {@link #MAX_SEGMENT_SIZE}
+     * @return count of plain bytes encrypted
+     */
+    public long encrypt(ReadableByteChannel source, WritableByteChannel target, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size should be between " + MIN_SEGMENT_SIZE + " and " + MAX_SEGMENT_SIZE);
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        secureRandom.nextBytes(salt);
+        secureRandom.nextBytes(noncePrefix);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                .put(MAGIC)
+                .put(FORMAT_VERSION)
+                .putInt(segmentSize)
+                .putInt(keyObtentionIterations)
+                .put(salt)
+                .put(noncePrefix);
+        writeFully(target, (ByteBuffer) header.flip());
+
+        SegmentCipher segmentCipher = new SegmentCipher(Cipher.ENCRYPT_MODE, header.array(), keyObtentionIterations, salt, noncePrefix);
+        return segmentCipher.process(source, target, segmentSize, segmentSize + TAG_LENGTH);
+    }
+
+    /**
+     * @return count of plain bytes decrypted
+     * @throws EncryptionOperationNotPossibleException when the source is not an encrypted file, when its iterations
+     *                                                 exceed the limit, or when the password is wrong or the file
+     *                                                 corrupted
+     */
+    public long decrypt(ReadableByteChannel source, WritableByteChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        if (readFully(source, header) < HEADER_LENGTH || !hasMagic(header) || header.get(MAGIC.length) != FORMAT_VERSION) {
+            throw new EncryptionOperationNotPossibleException("Not an encrypted file, or written by a newer version");
+        }
+        header.position(MAGIC.length + 1);
+        int segmentSize = header.getInt();
+        int iterations = header.getInt();
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > MAX_SEGMENT_SIZE || iterations < 1) {
+            throw new EncryptionOperationNotPossibleException("Corrupted file header");
+        }
+        long maxIterations = (long) keyObtentionIterations * MAX_ITERATIONS_FACTOR;
+        if (iterations > maxIterations) {
+            throw new EncryptionOperationNotPossibleException("Key obtention iterations of the file (" + iterations
+                    + ") exceed the limit of " + maxIterations + ", raise the configured iterations to decrypt it");
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        header.get(salt).get(noncePrefix);
+
+        SegmentCipher segmentCipher = new SegmentCipher(Cipher.DECRYPT_MODE, header.array(), iterations, salt, noncePrefix);
+        return segmentCipher.process(source, target, segmentSize + TAG_LENGTH, segmentSize + TAG_LENGTH);
+    }
+
+    private static boolean hasMagic(ByteBuffer header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills the buffer from its start, stops early only at the end of the channel
+     *
+     * @return count of bytes read, the buffer is left positioned after them
+     */
+    private static int readFully(ReadableByteChannel source, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && source.read(buffer) >= 0) {
+            // read until full or end of input
+        }
+        return buffer.position();
+    }
+
+    private static void writeFully(WritableByteChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Processes the segments of one file with two input buffers, reading one segment ahead to find out
+     * whether the current segment is the last one
+     */
+    private final class SegmentCipher {
+
+        private final int mode;
+        private final byte[] header;
+        private final byte[] noncePrefix;
+        private final SecretKey key;
+        private final Cipher cipher;
+
+        private SegmentCipher(int mode, byte[] header, int iterations, byte[] salt, byte[] noncePrefix) {
+            this.mode = mode;
+            this.header = header;
+            this.noncePrefix = noncePrefix;
+            this.key = AesGcmStringEncryptor.deriveKey(password, salt, iterations, providerName);
+            this.cipher = AesGcmStringEncryptor.createCipher(providerName);
+        }
+
+        /**
+         * @return count of plain bytes
+         */
+        long process(ReadableByteChannel source, WritableByteChannel target, int inputSegmentLength, int outputSegmentLength) throws IOException {
+            ByteBuffer current = ByteBuffer.allocate(inputSegmentLength);
+            ByteBuffer next = ByteBuffer.allocate(inputSegmentLength);
+            ByteBuffer output = ByteBuffer.allocate(outputSegmentLength);
+            long plainBytes = 0;
+            readFully(source, current);
+            for (long segmentIndex = 0; ; segmentIndex++) {
+                if (segmentIndex > MAX_SEGMENT_COUNT) {
+                    throw new EncryptionOperationNotPossibleException("File has too many segments, use a larger segment size");
+                }
+                boolean last = current.position() < inputSegmentLength || readFully(source, next) == 0;
+                current.flip();
+                plainBytes += mode == Cipher.ENCRYPT_MODE ? current.remaining() : current.remaining() - TAG_LENGTH;
+                processSegment(current, output, segmentIndex, last);
+                writeFully(target, output);
+                if (last) {
+                    return plainBytes;
+                }
+                ByteBuffer processed = current;
+                current = next;
+                next = processed;
+            }
+        }
+
+        private void processSegment(ByteBuffer input, ByteBuffer output, long segmentIndex, boolean last) {
+            if (mode == Cipher.DECRYPT_MODE && input.remaining() < TAG_LENGTH) {
+                throw new EncryptionOperationNotPossibleException("Truncated file");
+            }
+            ByteBuffer nonce = ByteBuffer.allocate(NONCE_LENGTH)
+                    .put(noncePrefix)
+                    .putInt((int) segmentIndex)
+                    .put((byte) (last ? 1 : 0));
+            try {
+                cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH_BITS, nonce.array()));
+                cipher.updateAAD(header);
+                output.clear();
+                cipher.doFinal(input, output);
+                output.flip();
+            } catch (AEADBadTagException e) {
+                throw new EncryptionOperationNotPossibleException("Segment " + segmentIndex
+                        + " can't be decrypted: wrong password, truncated or corrupted file");
+            } catch (GeneralSecurityException e) {
+                throw new EncryptionOperationNotPossibleException(e);
+            }
+        }
+    }
+}
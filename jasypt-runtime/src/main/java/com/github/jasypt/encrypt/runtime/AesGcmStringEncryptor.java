@@ -0,0 +1,249 @@
+package com.github.jasypt.encrypt.runtime;
+
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.exceptions.EncryptionInitializationException;
+import org.jasypt.exceptions.EncryptionOperationNotPossibleException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * High throughput alternative to the Jasypt PBE encryptors. The AES-256 key is derived with PBKDF2 only once
+ * per salt, instead of once per value, and every value is encrypted with a fresh random IV using AES-GCM.
+ * <p>
+ * Encrypted value layout, encoded with the configured string output type ({@code base64} or {@code hexadecimal}):
+ * <pre>
+ * | version (1 byte, 0x01) | salt (16 bytes) | iv (12 bytes) | ciphertext | GCM tag (16 bytes) |
+ * </pre>
+ * The key is {@code PBKDF2WithHmacSHA512(password, salt, key-obtention-iterations, 256 bit)}, version and salt are
+ * authenticated as additional data. One salt is generated per encryptor instance, while decryption accepts any salt.
+ * Besides the key of its own salt, an instance keeps the keys of the {@value #FOREIGN_KEY_CACHE_SIZE} most recently
+ * used other salts, so values written by a few different runs are decrypted without extra derivations, and foreign
+ * or corrupted values can't grow the cache.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class AesGcmStringEncryptor implements PBEStringEncryptor {
+
+    public static final String MODE_NAME = "aes-gcm";
+
+    static final byte FORMAT_VERSION = 1;
+    static final int SALT_LENGTH = 16;
+    static final int IV_LENGTH = 12;
+    static final int TAG_LENGTH_BITS = 128;
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String HEXADECIMAL_OUTPUT_TYPE = "hexadecimal";
+    static final int FOREIGN_KEY_CACHE_SIZE = 16;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<String, DerivedKey> foreignKeys = Collections.synchronizedMap(new LinkedHashMap<String, DerivedKey>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DerivedKey> eldest) {
+            return size() > FOREIGN_KEY_CACHE_SIZE;
+        }
+    });
+    private final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(this::newCipher);
+
+    private final int keyObtentionIterations;
+    private final boolean hexadecimalOutput;
+    private final String providerName;
+    private final byte[] salt = new byte[SALT_LENGTH];
+
+    private volatile char[] password;
+    private volatile DerivedKey encryptionKey;
+
+    public AesGcmStringEncryptor(int keyObtentionIterations, String stringOutputType, String providerName) {
+        this.keyObtentionIterations = keyObtentionIterations;
+        this.hexadecimalOutput = HEXADECIMAL_OUTPUT_TYPE.equalsIgnoreCase(stringOutputType);
+        this.providerName = providerName;
+        secureRandom.nextBytes(salt);
+    }
+
+    public static AesGcmStringEncryptor fromConfig(JasyptConfig config, String password) {
+        AesGcmStringEncryptor encryptor = new AesGcmStringEncryptor(
+                Integer.parseInt(config.getKeyObtentionIterations()), config.getStringOutputType(), config.getProviderName());
+        encryptor.setPassword(password);
+        return encryptor;
+    }
+
+    @Override
+    public void setPassword(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new EncryptionInitializationException("Password cannot be empty");
+        }
+        this.password = password.toCharArray();
+        this.foreignKeys.clear();
+        this.encryptionKey = new DerivedKey(this.password, salt);
+    }
+
+    @Override
+    public String encrypt(String message) {
+        if (message == null) {
+            return null;
+        }
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            byte[] header = createHeader(salt);
+            Cipher encryptCipher = cipher.get();
+            encryptCipher.init(Cipher.ENCRYPT_MODE, getEncryptionKey(), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            encryptCipher.updateAAD(header);
+            byte[] encrypted = encryptCipher.doFinal(message.getBytes(StandardCharsets.UTF_8));
+
+            ByteBuffer output = ByteBuffer.allocate(header.length + IV_LENGTH + encrypted.length);
+            output.put(header).put(iv).put(encrypted);
+            return encode(output.array());
+
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionOperationNotPossibleException(e);
+        }
+    }
+
+    @Override
+    public String decrypt(String encryptedMessage) {
+        if (encryptedMessage == null) {
+            return null;
+        }
+        try {
+            byte[] input = decode(encryptedMessage.trim());
+            int headerLength = 1 + SALT_LENGTH;
+            if (input.length < headerLength + IV_LENGTH + TAG_LENGTH_BITS / 8 || input[0] != FORMAT_VERSION) {
+                throw new EncryptionOperationNotPossibleException();
+            }
+            byte[] valueSalt = Arrays.copyOfRange(input, 1, headerLength);
+            Cipher decryptCipher = cipher.get();
+            decryptCipher.init(Cipher.DECRYPT_MODE, getKey(valueSalt), new GCMParameterSpec(TAG_LENGTH_BITS, input, headerLength, IV_LENGTH));
+            decryptCipher.updateAAD(input, 0, headerLength);
+            byte[] decrypted = decryptCipher.doFinal(input, headerLength + IV_LENGTH, input.length - headerLength - IV_LENGTH);
+            return new String(decrypted, StandardCharsets.UTF_8);
+
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new EncryptionOperationNotPossibleException(e);
+        }
+    }
+
+    private SecretKey getEncryptionKey() {
+        DerivedKey key = encryptionKey;
+        if (key == null) {
+            throw new EncryptionInitializationException("Password not set for encryptor");
+        }
+        return key.get();
+    }
+
+    /**
+     * Derives the key once per salt, concurrent callers for the same salt wait for a single derivation
+     */
+    SecretKey getKey(byte[] keySalt) {
+        char[] keyPassword = password;
+        if (keyPassword == null) {
+            throw new EncryptionInitializationException("Password not set for encryptor");
+        }
+        if (Arrays.equals(keySalt, salt)) {
+            return getEncryptionKey();
+        }
+        return foreignKeys.computeIfAbsent(Base64.getEncoder().encodeToString(keySalt),
+                (String saltKey) -> new DerivedKey(keyPassword, keySalt)).get();
+    }
+
+    /**
+     * @param providerName JCE provider of the key factory, {@code null} for the default one
+     * @return AES-256 key, {@code PBKDF2WithHmacSHA512(password, salt, iterations, 256 bit)}
+     */
+    static SecretKey deriveKey(char[] password, byte[] keySalt, int keyObtentionIterations, String providerName) {
+        try {
+            SecretKeyFactory keyFactory = providerName != null
+                    ? SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM, providerName)
+                    : SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM);
+            PBEKeySpec keySpec = new PBEKeySpec(password, keySalt, keyObtentionIterations, KEY_LENGTH_BITS);
+            try {
+                return new SecretKeySpec(keyFactory.generateSecret(keySpec).getEncoded(), "AES");
+            } finally {
+                keySpec.clearPassword();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionInitializationException(e);
+        }
+    }
+
+    private Cipher newCipher() {
+        return createCipher(providerName);
+    }
+
+    static Cipher createCipher(String providerName) {
+        try {
+            return providerName != null ? Cipher.getInstance(CIPHER_TRANSFORMATION, providerName) : Cipher.getInstance(CIPHER_TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionInitializationException(e);
+        }
+    }
+
+    private static byte[] createHeader(byte[] keySalt) {
+        byte[] header = new byte[1 + keySalt.length];
+        header[0] = FORMAT_VERSION;
+        System.arraycopy(keySalt, 0, header, 1, keySalt.length);
+        return header;
+    }
+
+    private String encode(byte[] bytes) {
+        if (!hexadecimalOutput) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(Character.forDigit((value >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(value & 0xF, 16));
+        }
+        return hex.toString().toUpperCase();
+    }
+
+    private byte[] decode(String encoded) {
+        if (!hexadecimalOutput) {
+            return Base64.getDecoder().decode(encoded);
+        }
+        if (encoded.length() % 2 != 0) {
+            throw new IllegalArgumentException("Hexadecimal value has odd length");
+        }
+        byte[] bytes = new byte[encoded.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(encoded.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Key of one salt, derived by the first caller
+     */
+    private final class DerivedKey {
+
+        private final char[] keyPassword;
+        private final byte[] keySalt;
+        private SecretKey key;
+
+        private DerivedKey(char[] keyPassword, byte[] keySalt) {
+            this.keyPassword = keyPassword;
+            this.keySalt = keySalt;
+        }
+
+        synchronized SecretKey get() {
+            if (key == null) {
+                key = deriveKey(keyPassword, keySalt, keyObtentionIterations, providerName);
+            }
+            return key;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.github.jasypt.encrypt.runtime;
+
+import org.jasypt.encryption.StringEncryptor;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Read-only view of properties with {@code ENC(...)} values, as written by the {@code encryptProperties} task, that
+ * decrypts every value on first access and caches the plain text. Startup pays only for the values that are read,
+ * and {@link #decryptInBackground()} can decrypt the rest in parallel while the application starts.
+ * <p>
+ * The encryptor is configured from the {@code jasypt.encryptor.*} keys of the properties, the same way the plugin
+ * tasks configure it, and is created on first decryption. Properties are copied when the view is created,
+ * later changes of the source are not seen. Instances are thread-safe, every value is decrypted at most once.
+ *
+ * <pre>
+ * Properties properties = new Properties();
+ * properties.load(reader);
+ * EncryptedProperties config = EncryptedProperties.of(properties, System.getenv("JASYPT_ENCRYPTOR_PASSWORD"));
+ * String password = config.getProperty("db.password");
+ * </pre>
+ */
+public final class EncryptedProperties extends AbstractMap<String, String> {
+
+    public static final String PREFIX = "ENC(";
+    public static final String SUFFIX = ")";
+
+    private final Map<String, Object> values;
+    private final Supplier<StringEncryptor> encryptorFactory;
+    private final int parallelism;
+    private final Set<Entry<String, String>> entrySet = new EntrySet();
+
+    private volatile StringEncryptor encryptor;
+
+    /**
+     * @param values copied source values, encrypted ones are replaced with lazy values
+     */
+    private EncryptedProperties(Map<String, Object> values, Supplier<StringEncryptor> encryptorFactory, int parallelism) {
+        values.replaceAll((String key, Object value) -> isEncrypted((String) value) ? new LazyValue(key, (String) value) : value);
+        this.values = Collections.unmodifiableMap(values);
+        this.encryptorFactory = encryptorFactory;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param source   {@link Properties}, including their defaults, or any map, keys and values are converted to strings
+     * @param password encryptor password
+     */
+    public static EncryptedProperties of(Map<?, ?> source, String password) {
+        Map<String, Object> values = copyValues(source);
+        Properties configProperties = new Properties();
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (value.getKey().startsWith("jasypt.encryptor.")) {
+                configProperties.setProperty(value.getKey(), (String) value.getValue());
+            }
+        }
+        JasyptConfig config = JasyptConfig.fromProperties(configProperties);
+        return new EncryptedProperties(values, () -> EncryptorFactory.create(config, password),
+                Math.max(1, Integer.parseInt(config.getPoolSize())));
+    }
+
+    /**
+     * @param encryptor thread-safe encryptor, used as is
+     */
+    public static EncryptedProperties of(Map<?, ?> source, StringEncryptor encryptor) {
+        return new EncryptedProperties(copyValues(source), () -> encryptor, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Map<String, Object> copyValues(Map<?, ?> source) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (source instanceof Properties) {
+            Properties properties = (Properties) source;
+            for (String name : properties.stringPropertyNames()) {
+                values.put(name, properties.getProperty(name));
+            }
+            return values;
+        }
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                values.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return true when the value has at least one {@code ENC(...)} part
+     */
+    public static boolean isEncrypted(String value) {
+        int prefixIndex = value != null ? value.indexOf(PREFIX) : -1;
+        return prefixIndex >= 0 && value.indexOf(SUFFIX, prefixIndex + PREFIX.length()) >= 0;
+    }
+
+    /**
+     * @return the value with every {@code ENC(...)} part decrypted, decrypted on first access
+     * @throws IllegalStateException when the value can't be decrypted, nothing is cached then
+     */
+    public String getProperty(String key) {
+        return resolve(values.get(key));
+    }
+
+    public String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public String get(Object key) {
+        return resolve(values.get(key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Entries are decrypted when their value is read
+     */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Encrypted values are masked, so logging the properties never decrypts or leaks them
+     */
+    @Override
+    public String toString() {
+        StringBuilder properties = new StringBuilder("{");
+        values.forEach((String key, Object value) -> {
+            if (properties.length() > 1) {
+                properties.append(", ");
+            }
+            properties.append(key).append('=').append(value instanceof LazyValue ? PREFIX + "***" + SUFFIX : value);
+        });
+        return properties.append('}').toString();
+    }
+
+    /**
+     * @return the keys with encrypted values, decrypted or not
+     */
+    public Set<String> encryptedKeys() {
+        Set<String> encryptedKeys = new LinkedHashSet<>();
+        values.forEach((String key, Object value) -> {
+            if (value instanceof LazyValue) {
+                encryptedKeys.add(key);
+            }
+        });
+        return encryptedKeys;
+    }
+
+    /**
+     * @return count of the encrypted values that have not been decrypted yet
+     */
+    public int pendingCount() {
+        int pendingCount = 0;
+        for (Object value : values.values()) {
+            if (value instanceof LazyValue && !((LazyValue) value).isDecrypted()) {
+                pendingCount++;
+            }
+        }
+        return pendingCount;
+    }
+
+    /**
+     * Decrypts all values that haven't been read yet on daemon threads, one per pooled encryptor, or one per processor
+     * for an encryptor given as is. Reading a value that is being decrypted waits for it.
+     *
+     * @return completes when all values are decrypted, or exceptionally with the first failure
+     */
+    public CompletableFuture<Void> decryptInBackground() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "jasypt-decrypt-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> decryption = decryptInBackground(executor);
+        decryption.whenComplete((Void result, Throwable failure) -> executor.shutdown());
+        return decryption;
+    }
+
+    /**
+     * Decrypts all values that haven't been read yet with the executor, one task per value
+     *
+     * @return completes when all values are decrypted, or exceptionally with the first failure
+     */
+    public CompletableFuture<Void> decryptInBackground(Executor executor) {
+        List<CompletableFuture<String>> decryptions = new ArrayList<>();
+        for (Object value : values.values()) {
+            if (value instanceof LazyValue && !((LazyValue) value).isDecrypted()) {
+                decryptions.add(CompletableFuture.supplyAsync(() -> resolve(value), executor));
+            }
+        }
+        return CompletableFuture.allOf(decryptions.toArray(new CompletableFuture[0]));
+    }
+
+    private String resolve(Object value) {
+        return value instanceof LazyValue ? ((LazyValue) value).get() : (String) value;
+    }
+
+    private StringEncryptor getEncryptor() {
+        StringEncryptor currentEncryptor = encryptor;
+        if (currentEncryptor == null) {
+            synchronized (this) {
+                if (encryptor == null) {
+                    encryptor = encryptorFactory.get();
+                }
+                currentEncryptor = encryptor;
+            }
+        }
+        return currentEncryptor;
+    }
+
+    /**
+     * Encrypted value, decrypted once. Concurrent readers of the same value wait for the first one.
+     */
+    private final class LazyValue {
+
+        private final String key;
+        private final String encryptedValue;
+        private volatile String plainValue;
+
+        private LazyValue(String key, String encryptedValue) {
+            this.key = key;
+            this.encryptedValue = encryptedValue;
+        }
+
+        boolean isDecrypted() {
+            return plainValue != null;
+        }
+
+        String get() {
+            String value = plainValue;
+            if (value == null) {
+                synchronized (this) {
+                    if (plainValue == null) {
+                        plainValue = decrypt();
+                    }
+                    value = plainValue;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Base64 and hexadecimal values never contain the suffix, so every part ends at the first suffix after its prefix
+         */
+        private String decrypt() {
+            StringBuilder decrypted = new StringBuilder(encryptedValue.length());
+            int position = 0;
+            int prefixIndex;
+            while ((prefixIndex = encryptedValue.indexOf(PREFIX, position)) >= 0) {
+                int suffixIndex = encryptedValue.indexOf(SUFFIX, prefixIndex + PREFIX.length());
+                if (suffixIndex < 0) {
+                    break;
+                }
+                decrypted.append(encryptedValue, position, prefixIndex);
+                try {
+                    decrypted.append(getEncryptor().decrypt(encryptedValue.substring(prefixIndex + PREFIX.length(), suffixIndex)));
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException("Can't decrypt property '" + key + "'", e);
+                }
+                position = suffixIndex + SUFFIX.length();
+            }
+            return decrypted.append(encryptedValue, position, encryptedValue.length()).toString();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, String>> {
+
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+            Iterator<Entry<String, Object>> iterator = values.entrySet().iterator();
+            return new Iterator<Entry<String, String>>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<String, String> next() {
+                    Entry<String, Object> entry = iterator.next();
+                    return new LazyEntry(entry.getKey(), entry.getValue());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
+
+    private final class LazyEntry implements Entry<String, String> {
+
+        private final String key;
+        private final Object value;
+
+        private LazyEntry(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String getValue() {
+            return resolve(value);
+        }
+
+        @Override
+        public String setValue(String value) {
+            throw new UnsupportedOperationException("Encrypted properties are read-only");
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            return key.equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + (value instanceof LazyValue ? PREFIX + "***" + SUFFIX : value);
+        }
+    }
+}
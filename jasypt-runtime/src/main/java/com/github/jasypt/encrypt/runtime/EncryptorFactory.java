@@ -0,0 +1,42 @@
+package com.github.jasypt.encrypt.runtime;
+
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
+import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
+
+/**
+ * Creates the encryptor of a {@link JasyptConfig}. Used by the plugin tasks and by the runtime library,
+ * so values are decrypted at runtime with the same settings they were encrypted with.
+ */
+public final class EncryptorFactory {
+
+    private EncryptorFactory() {}
+
+    /**
+     * @return initialized encryptor, a {@link PooledPBEStringEncryptor} or, in {@code aes-gcm} mode, an {@link AesGcmStringEncryptor}
+     * @throws IllegalArgumentException for an unknown {@code jasypt.encryptor.mode}
+     */
+    public static PBEStringEncryptor create(JasyptConfig jasyptConfig, String password) {
+        if (AesGcmStringEncryptor.MODE_NAME.equalsIgnoreCase(jasyptConfig.getMode())) {
+            return AesGcmStringEncryptor.fromConfig(jasyptConfig, password);
+        }
+        if (jasyptConfig.getMode() != null && !JasyptConfig.PBE_MODE.equalsIgnoreCase(jasyptConfig.getMode())) {
+            throw new IllegalArgumentException("Unknown jasypt.encryptor.mode '" + jasyptConfig.getMode() + "', supported modes: "
+                    + JasyptConfig.PBE_MODE + ", " + AesGcmStringEncryptor.MODE_NAME);
+        }
+        PooledPBEStringEncryptor encryptor = new PooledPBEStringEncryptor();
+        SimpleStringPBEConfig config = new SimpleStringPBEConfig();
+        config.setPassword(password);
+        config.setAlgorithm(jasyptConfig.getAlgorithm());
+        config.setKeyObtentionIterations(jasyptConfig.getKeyObtentionIterations());
+        config.setPoolSize(jasyptConfig.getPoolSize());
+        config.setProviderName(jasyptConfig.getProviderName());
+        config.setProviderClassName(jasyptConfig.getProviderClassName());
+        config.setSaltGeneratorClassName(jasyptConfig.getSaltGeneratorClassname());
+        config.setIvGeneratorClassName(jasyptConfig.getIvGeneratorClassname());
+        config.setStringOutputType(jasyptConfig.getStringOutputType());
+        encryptor.setConfig(config);
+        encryptor.initialize();
+        return encryptor;
+    }
+}
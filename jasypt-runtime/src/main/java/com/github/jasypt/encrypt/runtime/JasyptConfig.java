@@ -1,9 +1,17 @@
-package com.github.jasypt.encrypt.tasks;
+package com.github.jasypt.encrypt.runtime;
 
 import com.tvd12.properties.file.annotation.Property;
+import com.tvd12.properties.file.mapping.PropertiesMapper;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
 
 public class JasyptConfig {
 
+    public static final String PBE_MODE = "pbe";
     public static final JasyptConfig DEFAULT_JASYPT_CONFIG = new JasyptConfig();
     
     @Property("jasypt.encryptor.pool-size")
@@ -25,8 +33,57 @@ public class JasyptConfig {
     @Property("jasypt.encryptor.provider-class-name")
     private String providerClassName;
 
+    @Property("jasypt.encryptor.mode")
+    private String mode = PBE_MODE;
+
     public JasyptConfig() {}
 
+    /**
+     * @return config mapped from the {@code jasypt.encryptor.*} keys of the properties, missing keys keep their defaults
+     */
+    public static JasyptConfig fromProperties(Properties properties) {
+        return new PropertiesMapper()
+                .data(properties)
+                .map(JasyptConfig.class);
+    }
+
+    /**
+     * @return names of all {@code jasypt.encryptor.*} keys mapped to this config
+     */
+    public static Set<String> getPropertyNames() {
+        Set<String> propertyNames = new HashSet<>();
+        for (Field field : JasyptConfig.class.getDeclaredFields()) {
+            Property property = field.getAnnotation(Property.class);
+            if (property != null) {
+                propertyNames.add(property.value());
+            }
+        }
+        return Collections.unmodifiableSet(propertyNames);
+    }
+
+    /**
+     * @return all non-null values of this config keyed by their {@code jasypt.encryptor.*} names
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        for (Field field : JasyptConfig.class.getDeclaredFields()) {
+            Property property = field.getAnnotation(Property.class);
+            if (property == null) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                Object value = field.get(this);
+                if (value != null) {
+                    properties.setProperty(property.value(), value.toString());
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return properties;
+    }
+
     public String getPoolSize() {
         return poolSize;
     }
@@ -90,6 +147,14 @@ public class JasyptConfig {
     public void setProviderClassName(String providerClassName) {
         this.providerClassName = providerClassName;
     }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
 }
         
 
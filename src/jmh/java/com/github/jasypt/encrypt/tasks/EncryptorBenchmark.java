@@ -0,0 +1,75 @@
+package com.github.jasypt.encrypt.tasks;
+
+import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
+import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link PooledPBEStringEncryptor} across pool sizes, algorithms and key obtention iterations.
+ * Runs with several threads, as the parallel file processing does, so pool contention shows up in the results.
+ * Thread count can be changed with the JMH {@code -t} option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class EncryptorBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+    private static final String PLAIN_TEXT = "jdbc-password-of-typical-length";
+
+    @Param({"1", "4", "8"})
+    public int poolSize;
+
+    @Param({"PBEWITHMD5ANDDES", "PBEWITHHMACSHA512ANDAES_256"})
+    public String algorithm;
+
+    @Param({"1000", "10000"})
+    public int keyObtentionIterations;
+
+    private PooledPBEStringEncryptor encryptor;
+    private String encryptedText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleStringPBEConfig config = new SimpleStringPBEConfig();
+        config.setPassword(PASSWORD);
+        config.setAlgorithm(algorithm);
+        config.setKeyObtentionIterations(keyObtentionIterations);
+        config.setPoolSize(poolSize);
+        config.setSaltGeneratorClassName("org.jasypt.salt.RandomSaltGenerator");
+        config.setIvGeneratorClassName(algorithm.contains("AES") ? "org.jasypt.iv.RandomIvGenerator" : "org.jasypt.iv.NoIvGenerator");
+        config.setStringOutputType("base64");
+        encryptor = new PooledPBEStringEncryptor();
+        encryptor.setConfig(config);
+        encryptor.initialize();
+        encryptedText = encryptor.encrypt(PLAIN_TEXT);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptor.encrypt(PLAIN_TEXT);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptor.decrypt(encryptedText);
+    }
+}
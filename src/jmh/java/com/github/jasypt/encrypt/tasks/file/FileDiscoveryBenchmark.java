@@ -0,0 +1,70 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Property file discovery over a generated multi-module tree, sequential and parallel, with and without gitignore rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileDiscoveryBenchmark {
+
+    @Param({"100", "2000"})
+    public int fileCount;
+
+    @Param({"10", "200"})
+    public int modulesCount;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    @Param({"false", "true"})
+    public boolean respectGitIgnore;
+
+    private Path corpusDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = SyntheticCorpus.createTempDirectory();
+        new SyntheticCorpus(10, 10, 0, SyntheticCorpus.ENCRYPT_MARKER).writeTree(corpusDirectory, fileCount, modulesCount);
+        SyntheticCorpus.writeString(corpusDirectory.resolve(".gitignore"), "*.log\n/generated/\n");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticCorpus.deleteTree(corpusDirectory);
+    }
+
+    @Benchmark
+    public List<Path> walk() {
+        PropertyFileWalker fileWalker = new PropertyFileWalker(corpusDirectory, Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), null, FileFormats.HANDLERS, respectGitIgnore, parallel, Runtime.getRuntime().availableProcessors(),
+                (IOException e) -> {
+                    throw new UncheckedIOException(e);
+                });
+        return fileWalker.walk();
+    }
+}
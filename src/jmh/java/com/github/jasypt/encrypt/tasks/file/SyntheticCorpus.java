@@ -0,0 +1,167 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic {@code .properties} and {@code .yaml} configs for benchmarks. Output is deterministic
+ * for the same arguments, so results of different runs are comparable.
+ * <p>
+ * Each file has {@code valueCount} keys, of which {@code markedPercent} are wrapped with the given marker
+ * and {@code multilinePercent} of the marked ones are split over several lines.
+ */
+final class SyntheticCorpus {
+
+    static final String ENCRYPT_MARKER = "ENCRYPT";
+
+    private static final long SEED = 42L;
+    private static final int MULTILINE_CHUNK_LENGTH = 8;
+    private static final int VALUE_LENGTH = 32;
+
+    private final int valueCount;
+    private final int markedPercent;
+    private final int multilinePercent;
+    private final String marker;
+
+    SyntheticCorpus(int valueCount, int markedPercent, int multilinePercent, String marker) {
+        this.valueCount = valueCount;
+        this.markedPercent = markedPercent;
+        this.multilinePercent = multilinePercent;
+        this.marker = marker;
+    }
+
+    String propertiesContent(int fileIndex) {
+        Random random = new Random(SEED + fileIndex);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < valueCount; i++) {
+            String key = "group" + (i % 16) + ".key" + i;
+            String value = randomValue(random);
+            if (!isMarked(random)) {
+                content.append(key).append('=').append(value).append('\n');
+            } else if (isMultiline(random)) {
+                content.append(key).append("=\\\n");
+                content.append("  ").append(marker).append("(\\\n");
+                for (String chunk : splitValue(value)) {
+                    content.append("  ").append(chunk).append("\\\n");
+                }
+                content.append("  )\n");
+            } else {
+                content.append(key).append('=').append(marker).append('(').append(value).append(")\n");
+            }
+        }
+        return content.toString();
+    }
+
+    String yamlContent(int fileIndex) {
+        Random random = new Random(SEED + fileIndex);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < valueCount; i++) {
+            if (i % 16 == 0) {
+                content.append("group").append(i / 16).append(":\n");
+            }
+            content.append("  key").append(i).append(':');
+            String value = randomValue(random);
+            if (!isMarked(random)) {
+                content.append(' ').append(value).append('\n');
+            } else if (isMultiline(random)) {
+                content.append(" |\n");
+                content.append("    ").append(marker).append("(\n");
+                for (String chunk : splitValue(value)) {
+                    content.append("    ").append(chunk).append('\n');
+                }
+                content.append("    )\n");
+            } else {
+                content.append(' ').append(marker).append('(').append(value).append(")\n");
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * Writes {@code fileCount} files, alternating properties and yaml, into a multi-module like tree
+     * with {@code modulesCount} modules. Every module also gets non matching files and build directories,
+     * so discovery has something to skip.
+     *
+     * @return written property files
+     */
+    List<Path> writeTree(Path root, int fileCount, int modulesCount) throws IOException {
+        List<Path> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            Path resources = root.resolve("module-" + (i % modulesCount)).resolve("src/main/resources");
+            Files.createDirectories(resources);
+            boolean yaml = i % 2 == 1;
+            Path file = resources.resolve("application-" + i + (yaml ? ".yaml" : ".properties"));
+            writeString(file, yaml ? yamlContent(i) : propertiesContent(i));
+            files.add(file);
+        }
+        for (int i = 0; i < modulesCount; i++) {
+            Path module = root.resolve("module-" + i);
+            Files.createDirectories(module.resolve("src/main/java/com/example"));
+            writeString(module.resolve("src/main/java/com/example/Application.java"), "class Application {}\n");
+            Files.createDirectories(module.resolve("build/resources/main"));
+            writeString(module.resolve("build/resources/main/application.properties"), "copied=true\n");
+        }
+        return files;
+    }
+
+    static void writeString(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Path createTempDirectory() throws IOException {
+        return Files.createTempDirectory("jasypt-jmh");
+    }
+
+    static void deleteTree(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isMarked(Random random) {
+        return random.nextInt(100) < markedPercent;
+    }
+
+    private boolean isMultiline(Random random) {
+        return random.nextInt(100) < multilinePercent;
+    }
+
+    private static String randomValue(Random random) {
+        StringBuilder value = new StringBuilder(VALUE_LENGTH);
+        for (int i = 0; i < VALUE_LENGTH; i++) {
+            value.append((char) ('a' + random.nextInt(26)));
+        }
+        return value.toString();
+    }
+
+    private static List<String> splitValue(String value) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < value.length(); i += MULTILINE_CHUNK_LENGTH) {
+            chunks.add(value.substring(i, Math.min(value.length(), i + MULTILINE_CHUNK_LENGTH)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-file value handling of the properties and yaml engine: line scanning, value extraction, multiline joining
+ * and re-formatting. A pass-through encryptor keeps crypto out of the measurement, see {@code EncryptorBenchmark} for that.
+ * <p>
+ * {@code transform} collects and processes values without writing, {@code transformAndRewrite} also streams
+ * the file through a temp file. The rewrite keeps the {@code ENCRYPT()} marker, so every invocation sees the same input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+public class ValueTransformBenchmark {
+
+    @Param({"properties", "yaml"})
+    public String format;
+
+    @Param({"100", "10000"})
+    public int valueCount;
+
+    @Param({"10", "50"})
+    public int markedPercent;
+
+    @Param({"0", "50"})
+    public int multilinePercent;
+
+    private Path corpusDirectory;
+    private Path file;
+    private IdentityTask transformTask;
+    private IdentityTask rewriteTask;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpusDirectory = SyntheticCorpus.createTempDirectory();
+        SyntheticCorpus corpus = new SyntheticCorpus(valueCount, markedPercent, multilinePercent, SyntheticCorpus.ENCRYPT_MARKER);
+        boolean yaml = "yaml".equals(format);
+        file = corpusDirectory.resolve(yaml ? "application.yaml" : "application.properties");
+        SyntheticCorpus.writeString(file, yaml ? corpus.yamlContent(0) : corpus.propertiesContent(0));
+
+        Project project = ProjectBuilder.builder().withProjectDir(corpusDirectory.toFile()).build();
+        transformTask = project.getTasks().register("transform", IdentityTask.class).get();
+        transformTask.readOnly = true;
+        rewriteTask = project.getTasks().register("rewrite", IdentityTask.class).get();
+        rewriteTask.transformFile(PassThroughEncryptor.INSTANCE, PropertyFileSource.read(file)); // settle multiline layout
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SyntheticCorpus.deleteTree(corpusDirectory);
+    }
+
+    @Benchmark
+    public int transform() throws IOException {
+        return transformTask.transformFile(PassThroughEncryptor.INSTANCE, PropertyFileSource.read(file));
+    }
+
+    @Benchmark
+    public int transformAndRewrite() throws IOException {
+        return rewriteTask.transformFile(PassThroughEncryptor.INSTANCE, PropertyFileSource.read(file));
+    }
+
+    /**
+     * Encrypt task writing values back with the {@code ENCRYPT()} marker
+     */
+    public abstract static class IdentityTask extends EncryptPropertiesFileTask {
+
+        private boolean readOnly;
+
+        @Override
+        public String getPropertyPrefix() {
+            return "ENCRYPT(";
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return readOnly;
+        }
+    }
+
+    private static final class PassThroughEncryptor implements PBEStringEncryptor {
+
+        private static final PassThroughEncryptor INSTANCE = new PassThroughEncryptor();
+
+        @Override
+        public String encrypt(String message) {
+            return message;
+        }
+
+        @Override
+        public String decrypt(String encryptedMessage) {
+            return encryptedMessage;
+        }
+
+        @Override
+        public void setPassword(String password) {}
+    }
+}
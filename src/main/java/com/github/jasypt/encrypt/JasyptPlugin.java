@@ -1,28 +1,108 @@
 package com.github.jasypt.encrypt;
 
+import com.github.jasypt.encrypt.tasks.EncryptorService;
+import com.github.jasypt.encrypt.tasks.PasswordAwareTask;
+import com.github.jasypt.encrypt.tasks.benchmark.EncryptorBenchmarkTask;
+import com.github.jasypt.encrypt.tasks.binary.DecryptFileTask;
+import com.github.jasypt.encrypt.tasks.binary.EncryptFileTask;
 import com.github.jasypt.encrypt.tasks.file.DecryptPropertiesFileTask;
+import com.github.jasypt.encrypt.tasks.file.PropertiesFileAwareTask;
+import com.github.jasypt.encrypt.tasks.file.VerifyEncryptedPropertiesTask;
+import com.github.jasypt.encrypt.tasks.file.RotatePropertiesFileTask;
 import com.github.jasypt.encrypt.tasks.text.DecryptTextTask;
 import com.github.jasypt.encrypt.tasks.text.EncryptTextTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceSpec;
 import org.gradle.util.GradleVersion;
 import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 public class JasyptPlugin implements Plugin<Project> {
 
-    private static final String MIN_GRADLE_VERSION = "4.10";
+    public static final String PLUGIN_ID = "io.github.ximtech.jasypt-encrypt-plugin";
+    private static final String MIN_GRADLE_VERSION = "6.1";
     public static final String TASK_GROUP_NAME = "Jasypt Encryption";
+    private static final String PLUGIN_PROJECT_DIRECTORIES = "jasyptPluginProjectDirectories";
+    private static final List<String> AGGREGATE_TASK_NAMES = Arrays.asList(EncryptPropertiesFileTask.AGGREGATE_TASK_NAME,
+            DecryptPropertiesFileTask.AGGREGATE_TASK_NAME, VerifyEncryptedPropertiesTask.AGGREGATE_TASK_NAME, RotatePropertiesFileTask.AGGREGATE_TASK_NAME);
 
     @Override
     public void apply(Project project) {
         verifyGradleVersion();
 
+        Provider<EncryptorService> encryptorService = project.getGradle().getSharedServices()
+                .registerIfAbsent(EncryptorService.SERVICE_NAME, EncryptorService.class, (BuildServiceSpec<BuildServiceParameters.None> spec) -> {});
+        project.getTasks().withType(PasswordAwareTask.class).configureEach((PasswordAwareTask task) -> {
+            task.getEncryptorService().set(encryptorService);
+            task.usesService(encryptorService);
+        });
+        Callable<Set<File>> nestedProjectDirectories = registerPluginProject(project);
+        project.getTasks().withType(PropertiesFileAwareTask.class).configureEach((PropertiesFileAwareTask task) -> {
+            if (!AGGREGATE_TASK_NAMES.contains(task.getName())) {
+                task.getNestedProjectDirectories().from(nestedProjectDirectories);
+            }
+        });
+
         project.getTasks().register(EncryptPropertiesFileTask.TASK_NAME, EncryptPropertiesFileTask.class);
         project.getTasks().register(DecryptPropertiesFileTask.TASK_NAME, DecryptPropertiesFileTask.class);
+        project.getTasks().register(VerifyEncryptedPropertiesTask.TASK_NAME, VerifyEncryptedPropertiesTask.class);
+        project.getTasks().register(RotatePropertiesFileTask.TASK_NAME, RotatePropertiesFileTask.class);
         project.getTasks().register(EncryptTextTask.TASK_NAME, EncryptTextTask.class);
         project.getTasks().register(DecryptTextTask.TASK_NAME, DecryptTextTask.class);
+        project.getTasks().register(EncryptFileTask.TASK_NAME, EncryptFileTask.class);
+        project.getTasks().register(DecryptFileTask.TASK_NAME, DecryptFileTask.class);
+        project.getTasks().register(EncryptorBenchmarkTask.TASK_NAME, EncryptorBenchmarkTask.class);
+
+        if (project == project.getRootProject()) {
+            registerAggregateTask(project, EncryptPropertiesFileTask.AGGREGATE_TASK_NAME, EncryptPropertiesFileTask.class);
+            registerAggregateTask(project, DecryptPropertiesFileTask.AGGREGATE_TASK_NAME, DecryptPropertiesFileTask.class);
+            registerAggregateTask(project, VerifyEncryptedPropertiesTask.AGGREGATE_TASK_NAME, VerifyEncryptedPropertiesTask.class);
+            registerAggregateTask(project, RotatePropertiesFileTask.AGGREGATE_TASK_NAME, RotatePropertiesFileTask.class);
+        }
+    }
+
+    /**
+     * Aggregate tasks search the whole root directory, subproject directories included, so every file
+     * of a multi-project build is processed once in a single pass
+     */
+    private <T extends PropertiesFileAwareTask> void registerAggregateTask(Project project, String taskName, Class<T> taskType) {
+        project.getTasks().register(taskName, taskType, (T task) -> task.setDescription(task.getDescription() + ", in all projects"));
+    }
+
+    /**
+     * Adds the project directory to the directories of all projects that apply the plugin, which are kept by the root
+     * project. Only Gradle types are stored there, since subprojects may load the plugin in other class loaders.
+     *
+     * @return lazy directories of the projects below this one that apply the plugin, their files are processed by
+     * their own tasks
+     */
+    private static Callable<Set<File>> registerPluginProject(Project project) {
+        Project rootProject = project.getRootProject();
+        ExtraPropertiesExtension rootProperties = rootProject.getExtensions().getExtraProperties();
+        if (!rootProperties.has(PLUGIN_PROJECT_DIRECTORIES)) {
+            rootProperties.set(PLUGIN_PROJECT_DIRECTORIES, rootProject.getObjects().fileCollection());
+        }
+        ConfigurableFileCollection pluginProjectDirectories = (ConfigurableFileCollection) rootProperties.get(PLUGIN_PROJECT_DIRECTORIES);
+        Path projectPath = project.getProjectDir().toPath();
+        if (project != rootProject) {
+            pluginProjectDirectories.from(project.getProjectDir());
+        }
+        return () -> pluginProjectDirectories.getFiles().stream()
+                .filter((File directory) -> directory.toPath().startsWith(projectPath) && !directory.toPath().equals(projectPath))
+                .collect(Collectors.toSet());
     }
 
     private void verifyGradleVersion() {
@@ -0,0 +1,80 @@
+package com.github.jasypt.encrypt.tasks;
+
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Build scoped owner of initialized encryptors. Tasks of all projects with the same password and effective
+ * configuration share one encryptor, so the JCE provider lookup, key derivation and pool setup happen once per build.
+ * Encryptors are keyed by a hash of the password, the password itself is kept only inside the encryptors.
+ */
+public abstract class EncryptorService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+
+    public static final String SERVICE_NAME = "jasyptEncryptors";
+
+    private final Map<String, PBEStringEncryptor> encryptors = new ConcurrentHashMap<>();
+
+    /**
+     * @return shared encryptor for the config and password, created with the factory on first use
+     */
+    public PBEStringEncryptor getEncryptor(JasyptConfig config, String password, Supplier<PBEStringEncryptor> factory) {
+        return encryptors.computeIfAbsent(encryptorKey(config, password), (String key) -> factory.get());
+    }
+
+    /**
+     * @param key key of an encryptor created before, see {@link #encryptorKey(JasyptConfig, String)}
+     * @throws IllegalStateException when no encryptor has been created for the key in this build
+     */
+    public PBEStringEncryptor getEncryptor(String key) {
+        PBEStringEncryptor encryptor = encryptors.get(key);
+        if (encryptor == null) {
+            throw new IllegalStateException("No encryptor has been initialized for the key");
+        }
+        return encryptor;
+    }
+
+    public int getEncryptorCount() {
+        return encryptors.size();
+    }
+
+    @Override
+    public void close() {
+        encryptors.clear();
+    }
+
+    /**
+     * @return key of the encryptor for the config and password, which doesn't contain the password itself
+     */
+    public static String encryptorKey(JasyptConfig config, String password) {
+        StringBuilder key = new StringBuilder(sha256(password));
+        Properties properties = config.toProperties();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            key.append('\n').append(name).append('=').append(properties.getProperty(name));
+        }
+        return key.toString();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
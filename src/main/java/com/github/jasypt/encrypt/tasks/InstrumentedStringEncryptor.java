@@ -0,0 +1,73 @@
+package com.github.jasypt.encrypt.tasks;
+
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.exceptions.EncryptionOperationNotPossibleException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Measures call and wait times of an encryptor. Calls are gated by a semaphore with one permit per pooled
+ * encryptor, so the time spent acquiring a permit is the time callers wait for a free pool entry.
+ * Without permits, as for thread-safe encryptors that have no pool, calls are only timed.
+ */
+final class InstrumentedStringEncryptor implements PBEStringEncryptor {
+
+    private final PBEStringEncryptor delegate;
+    private final Semaphore permits;
+    private final TaskMetrics metrics;
+
+    InstrumentedStringEncryptor(PBEStringEncryptor delegate, int permitCount, TaskMetrics metrics) {
+        this.delegate = delegate;
+        this.permits = permitCount > 0 ? new Semaphore(permitCount) : null;
+        this.metrics = metrics;
+        metrics.setEncryptorPermits(permitCount);
+    }
+
+    @Override
+    public String encrypt(String message) {
+        long waitStart = System.nanoTime();
+        acquire();
+        long callStart = System.nanoTime();
+        try {
+            return delegate.encrypt(message);
+        } finally {
+            release(waitStart, callStart);
+        }
+    }
+
+    @Override
+    public String decrypt(String encryptedMessage) {
+        long waitStart = System.nanoTime();
+        acquire();
+        long callStart = System.nanoTime();
+        try {
+            return delegate.decrypt(encryptedMessage);
+        } finally {
+            release(waitStart, callStart);
+        }
+    }
+
+    @Override
+    public void setPassword(String password) {
+        delegate.setPassword(password);
+    }
+
+    private void acquire() {
+        if (permits == null) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionOperationNotPossibleException("Interrupted while waiting for a free encryptor");
+        }
+    }
+
+    private void release(long waitStart, long callStart) {
+        if (permits != null) {
+            permits.release();
+        }
+        metrics.recordEncryptorCall(callStart - waitStart, System.nanoTime() - callStart);
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.jasypt.encrypt.tasks;
+
+/**
+ * Minimal JSON string literal codec for the reports and NDJSON batches, no JSON library is needed for plain strings
+ */
+public final class JsonStrings {
+
+    private JsonStrings() {}
+
+    /**
+     * @return the value as a quoted JSON string literal
+     */
+    public static String quote(String value) {
+        return '"' + escape(value) + '"';
+    }
+
+    /**
+     * @return the value escaped for the inside of a JSON string literal, without the surrounding quotes
+     */
+    public static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 2);
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            switch (character) {
+                case '"': escaped.append("\\\""); break;
+                case '\\': escaped.append("\\\\"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\t': escaped.append("\\t"); break;
+                default:
+                    if (character < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        escaped.append(character);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * @param literal JSON string literal, surrounding whitespace is ignored
+     * @return the decoded value
+     * @throws IllegalArgumentException when the literal is not a single JSON string
+     */
+    public static String unquote(String literal) {
+        String trimmed = literal.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '"' || trimmed.charAt(trimmed.length() - 1) != '"') {
+            throw new IllegalArgumentException("Expected a JSON string, got: " + literal);
+        }
+        return unescape(trimmed.substring(1, trimmed.length() - 1));
+    }
+
+    /**
+     * @param escaped inside of a JSON string literal, without the surrounding quotes
+     * @return the decoded value
+     * @throws IllegalArgumentException on unescaped quotes and invalid escape sequences
+     */
+    public static String unescape(String escaped) {
+        StringBuilder value = new StringBuilder(escaped.length());
+        int end = escaped.length();
+        for (int i = 0; i < end; i++) {
+            char character = escaped.charAt(i);
+            if (character == '"') {
+                throw new IllegalArgumentException("Unescaped quote at offset " + i + ": " + escaped);
+            }
+            if (character != '\\') {
+                value.append(character);
+                continue;
+            }
+            if (++i == end) {
+                throw new IllegalArgumentException("Unterminated escape sequence: " + escaped);
+            }
+            char escapedCharacter = escaped.charAt(i);
+            switch (escapedCharacter) {
+                case '"': case '\\': case '/': value.append(escapedCharacter); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (i + 4 >= end) {
+                        throw new IllegalArgumentException("Truncated unicode escape: " + escaped);
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(escaped.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid unicode escape: " + escaped, e);
+                    }
+                    i += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape '\\" + escapedCharacter + "': " + escaped);
+            }
+        }
+        return value.toString();
+    }
+}
@@ -1,63 +1,204 @@
 package com.github.jasypt.encrypt.tasks;
 
+import com.github.jasypt.encrypt.runtime.EncryptorFactory;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 import org.jasypt.encryption.pbe.PBEStringEncryptor;
 import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
-import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
 
 public abstract class PasswordAwareTask extends DefaultTask {
 
-    private String password;
+    public static final String PASSWORD_ENVIRONMENT_VARIABLE = "JASYPT_ENCRYPTOR_PASSWORD";
+    public static final String PASSWORD_PROPERTY = "jasypt.encryptor.password";
 
-    @Internal
-    private PBEStringEncryptor encryptor;
+    private final Property<String> password = getProject().getObjects().property(String.class);
+    private transient String passwordOption;
+    private boolean passwordOptionSet;
+
+    private transient PBEStringEncryptor encryptor;
+    private transient PBEStringEncryptor instrumentedEncryptor;
+    private transient String encryptorKey;
+
+    private transient TaskMetrics metrics;
+    private boolean runningAsTaskAction;
+    private final Property<EncryptorService> encryptorService = getProject().getObjects().property(EncryptorService.class);
+
+    public PasswordAwareTask() {
+        password.convention(secretProvider(getProject().getProviders(), PASSWORD_PROPERTY, PASSWORD_ENVIRONMENT_VARIABLE));
+    }
+
+    /**
+     * @return provider of a secret from the Gradle property, or else from the environment variable. Both are read at
+     * execution time, so the secret is not stored in the configuration cache.
+     */
+    protected static Provider<String> secretProvider(ProviderFactory providers, String gradleProperty, String environmentVariable) {
+        return providers.gradleProperty(gradleProperty).orElse(providers.environmentVariable(environmentVariable));
+    }
+
+    /**
+     * Secret options are kept in transient fields, which are not written to the configuration cache. A task restored
+     * from the cache knows only that the option has been set, so the secret has to come from the provider then.
+     *
+     * @return option value when set, otherwise the value of the provider
+     * @throws OptionValidationException when the option has been set, but its value has not been restored from the cache
+     */
+    protected static String secretValue(String optionValue, boolean optionSet, String option, Provider<String> provider,
+                                        String gradleProperty, String environmentVariable) {
+        if (optionValue != null) {
+            return optionValue;
+        }
+        if (optionSet) {
+            throw new OptionValidationException(option + " is not stored in the configuration cache, set the -P" + gradleProperty
+                    + " Gradle property or the " + environmentVariable + " environment variable instead");
+        }
+        return provider.getOrNull();
+    }
+
+    /**
+     * @return password of the {@code --password} option, or else of the Gradle property or environment variable
+     */
+    protected String password() {
+        return secretValue(passwordOption, passwordOptionSet, "--password", password, PASSWORD_PROPERTY, PASSWORD_ENVIRONMENT_VARIABLE);
+    }
 
+    /**
+     * @return encryptor for the config, wrapped to record call and wait times into the task metrics
+     */
     protected PBEStringEncryptor initEncryptor(JasyptConfig config) {
         if (encryptor == null) {
-            this.encryptor = createEncryptor(config);
+            long initStart = System.nanoTime();
+            String password = password();
+            this.encryptor = createEncryptor(config, password);
+            this.encryptorKey = sharedEncryptorKey(config, password);
+            metrics().record(TaskMetrics.Phase.INIT, initStart);
+            this.instrumentedEncryptor = instrument(encryptor, config);
         }
-        return encryptor;
+        return instrumentedEncryptor;
+    }
+
+    /**
+     * Drops the initialized encryptor, the next {@link #initEncryptor(JasyptConfig)} creates one for its config
+     */
+    protected void resetEncryptor() {
+        this.encryptor = null;
+        this.instrumentedEncryptor = null;
+        this.encryptorKey = null;
+    }
+
+    /**
+     * @return key of the initialized encryptor in the {@link EncryptorService}, {@code null} when it is not shared
+     */
+    protected String encryptorKey() {
+        return encryptorKey;
+    }
+
+    /**
+     * Wraps the encryptor to record call times and the time spent waiting for a free pooled encryptor
+     */
+    protected PBEStringEncryptor instrument(PBEStringEncryptor encryptor, JasyptConfig config) {
+        int permits = encryptor instanceof PooledPBEStringEncryptor ? Integer.parseInt(config.getPoolSize()) : 0;
+        return new InstrumentedStringEncryptor(encryptor, permits, metrics());
+    }
+
+    /**
+     * Metrics are created at execution time, they are never stored in the configuration cache
+     */
+    protected TaskMetrics metrics() {
+        if (metrics == null) {
+            metrics = new TaskMetrics();
+        }
+        return metrics;
     }
 
     @TaskAction
     public void action() {
-        if (this.password == null || this.password.trim().isEmpty()) {
+        String password = password();
+        if (password == null || password.trim().isEmpty()) {
             throw new OptionValidationException("--password is required!");
         }
         validateOptions();
-        taskAction();
+        this.runningAsTaskAction = true;
+        try {
+            taskAction();
+        } finally {
+            this.runningAsTaskAction = false;
+        }
+    }
+
+    /**
+     * @return true when executed by Gradle, false when {@link #taskAction()} is called directly, like from tests
+     */
+    protected boolean runsAsTaskAction() {
+        return runningAsTaskAction;
     }
 
     public abstract void taskAction();
     public abstract void validateOptions();
 
-    @Option(option = "password", description = "password [required]")
+    @Option(option = "password", description = "password [required], defaults to the " + PASSWORD_PROPERTY + " Gradle property or the "
+            + PASSWORD_ENVIRONMENT_VARIABLE + " environment variable")
     public void setPassword(String password) {
-        this.password = password;
+        this.passwordOption = password;
+        this.passwordOptionSet = true;
     }
 
+    /**
+     * Password used when the {@code --password} option is not set, by default the {@value #PASSWORD_PROPERTY} Gradle
+     * property or the {@value #PASSWORD_ENVIRONMENT_VARIABLE} environment variable. Not a task input, so the password
+     * is never written to the task history. The providers are read at execution time, so it is not stored in the
+     * configuration cache either, unless a fixed value is set here.
+     */
+    @Internal
+    public Property<String> getPassword() {
+        return password;
+    }
+
+    @Internal
     public PBEStringEncryptor getEncryptor() {
         return encryptor;
     }
 
-    private PBEStringEncryptor createEncryptor(JasyptConfig jasyptConfig) {
-        PooledPBEStringEncryptor encryptor = new PooledPBEStringEncryptor();
-        SimpleStringPBEConfig config = new SimpleStringPBEConfig();
-        config.setPassword(password);
-        config.setAlgorithm(jasyptConfig.getAlgorithm());
-        config.setKeyObtentionIterations(jasyptConfig.getKeyObtentionIterations());
-        config.setPoolSize(jasyptConfig.getPoolSize());
-        config.setProviderName(jasyptConfig.getProviderName());
-        config.setProviderClassName(jasyptConfig.getProviderClassName());
-        config.setSaltGeneratorClassName(jasyptConfig.getSaltGeneratorClassname());
-        config.setIvGeneratorClassName(jasyptConfig.getIvGeneratorClassname());
-        config.setStringOutputType(jasyptConfig.getStringOutputType());
-        encryptor.setConfig(config);
-        encryptor.initialize();
-        return encryptor;
+    /**
+     * Build service sharing initialized encryptors between tasks, set by the plugin
+     */
+    @Internal
+    public Property<EncryptorService> getEncryptorService() {
+        return encryptorService;
+    }
+
+    /**
+     * @return encryptor shared through the {@link EncryptorService} when available, otherwise a new one
+     */
+    protected PBEStringEncryptor createEncryptor(JasyptConfig jasyptConfig, String password) {
+        if (encryptorService.isPresent()) {
+            return encryptorService.get().getEncryptor(jasyptConfig, password, () -> newEncryptor(jasyptConfig, password));
+        }
+        return newEncryptor(jasyptConfig, password);
+    }
+
+    /**
+     * @return key of the encryptor shared through the {@link EncryptorService}, {@code null} without the service
+     */
+    protected String sharedEncryptorKey(JasyptConfig jasyptConfig, String password) {
+        return encryptorService.isPresent() ? EncryptorService.encryptorKey(jasyptConfig, password) : null;
+    }
+
+    /**
+     * @return new encryptor that is not shared, for short lived encryptors that shouldn't stay cached for the build
+     */
+    protected static PBEStringEncryptor newEncryptor(JasyptConfig jasyptConfig, String password) {
+        try {
+            return EncryptorFactory.create(jasyptConfig, password);
+        } catch (IllegalArgumentException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package com.github.jasypt.encrypt.tasks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.jasypt.encrypt.tasks.JsonStrings.quote;
+
+/**
+ * Thread-safe timers and counters of a single task run. Phase times are summed over all threads,
+ * so in parallel mode they can add up to more than the wall time of the run.
+ */
+public final class TaskMetrics {
+
+    public enum Phase {
+        DISCOVERY, READ, MATCH, CONFIG, INIT, CRYPTO, WRITE;
+
+        private String jsonName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+    private final Map<Phase, LongAdder> phaseCounts = new EnumMap<>(Phase.class);
+    private final Map<String, Long> counters = new ConcurrentHashMap<>();
+    private final Map<Path, FileTiming> fileTimings = new ConcurrentHashMap<>();
+
+    private final LongAdder encryptorCalls = new LongAdder();
+    private final LongAdder encryptorNanos = new LongAdder();
+    private final LongAdder encryptorWaitNanos = new LongAdder();
+    private final AtomicLong maxEncryptorWaitNanos = new AtomicLong();
+    private volatile int encryptorPermits;
+
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * Per file times, a file is handled by one thread at a time, so fields are updated without synchronization
+     */
+    public static final class FileTiming {
+        private long bytes;
+        private int values;
+        private final long[] phaseNanos = new long[Phase.values().length];
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public void setValues(int values) {
+            this.values = values;
+        }
+    }
+
+    public TaskMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+            phaseCounts.put(phase, new LongAdder());
+        }
+    }
+
+    public void reset() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.get(phase).reset();
+            phaseCounts.get(phase).reset();
+        }
+        counters.clear();
+        fileTimings.clear();
+        encryptorCalls.reset();
+        encryptorNanos.reset();
+        encryptorWaitNanos.reset();
+        maxEncryptorWaitNanos.set(0);
+        startNanos = System.nanoTime();
+        endNanos = 0;
+    }
+
+    /**
+     * Adds the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}, to the phase
+     */
+    public void record(Phase phase, long startNanos) {
+        add(phase, System.nanoTime() - startNanos);
+    }
+
+    public void add(Phase phase, long elapsedNanos) {
+        phaseNanos.get(phase).add(elapsedNanos);
+        phaseCounts.get(phase).increment();
+    }
+
+    /**
+     * Records the phase time both for the task and for the given file
+     */
+    public void record(Phase phase, Path file, long startNanos) {
+        add(phase, file, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds the phase time both to the task and to the given file
+     */
+    public void add(Phase phase, Path file, long elapsedNanos) {
+        add(phase, elapsedNanos);
+        file(file).phaseNanos[phase.ordinal()] += elapsedNanos;
+    }
+
+    public FileTiming file(Path file) {
+        return fileTimings.computeIfAbsent(file, (Path path) -> new FileTiming());
+    }
+
+    public void count(String name, long value) {
+        counters.put(name, value);
+    }
+
+    void recordEncryptorCall(long waitNanos, long callNanos) {
+        encryptorCalls.increment();
+        encryptorWaitNanos.add(waitNanos);
+        encryptorNanos.add(callNanos);
+        maxEncryptorWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void setEncryptorPermits(int encryptorPermits) {
+        this.encryptorPermits = encryptorPermits;
+    }
+
+    public void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getWallNanos() {
+        return (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.get(phase).sum();
+    }
+
+    public long getEncryptorCalls() {
+        return encryptorCalls.sum();
+    }
+
+    public long getEncryptorWaitNanos() {
+        return encryptorWaitNanos.sum();
+    }
+
+    /**
+     * @return one line summary for the build log
+     */
+    public String summary(long processedValues) {
+        StringBuilder summary = new StringBuilder()
+                .append("Processed in ").append(formatMillis(getWallNanos())).append(" ms, ")
+                .append(String.format(Locale.ROOT, "%.1f", valuesPerSecond(processedValues))).append(" values/s");
+        for (Phase phase : Phase.values()) {
+            summary.append(", ").append(phase.jsonName()).append(' ').append(formatMillis(getPhaseNanos(phase))).append(" ms");
+        }
+        return summary.append(", encryptor wait ").append(formatMillis(getEncryptorWaitNanos())).append(" ms").toString();
+    }
+
+    /**
+     * Writes the metrics as JSON, file paths are written relative to the given root directory
+     */
+    public void writeJsonReport(Path reportFile, String taskName, Path rootPath, long processedValues) throws IOException {
+        Files.createDirectories(reportFile.getParent());
+        try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write(toJson(taskName, rootPath, processedValues));
+        }
+    }
+
+    String toJson(String taskName, Path rootPath, long processedValues) {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"task\": ").append(quote(taskName)).append(",\n");
+        json.append("  \"timestamp\": ").append(quote(Instant.now().toString())).append(",\n");
+        json.append("  \"wallTimeMs\": ").append(formatMillis(getWallNanos())).append(",\n");
+        json.append("  \"valuesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", valuesPerSecond(processedValues))).append(",\n");
+
+        json.append("  \"counters\": {");
+        appendEntries(json, new TreeMap<String, Object>(counters));
+        json.append("},\n");
+
+        json.append("  \"phases\": {\n");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            json.append("    ").append(quote(phases[i].jsonName())).append(": {\"timeMs\": ").append(formatMillis(getPhaseNanos(phases[i])))
+                    .append(", \"count\": ").append(phaseCounts.get(phases[i]).sum()).append('}')
+                    .append(i < phases.length - 1 ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+
+        long calls = getEncryptorCalls();
+        json.append("  \"encryptor\": {\"calls\": ").append(calls)
+                .append(", \"permits\": ").append(encryptorPermits)
+                .append(", \"timeMs\": ").append(formatMillis(encryptorNanos.sum()))
+                .append(", \"waitMs\": ").append(formatMillis(getEncryptorWaitNanos()))
+                .append(", \"maxWaitMs\": ").append(formatMillis(maxEncryptorWaitNanos.get()))
+                .append(", \"averageWaitMs\": ").append(formatMillis(calls > 0 ? getEncryptorWaitNanos() / calls : 0))
+                .append("},\n");
+
+        json.append("  \"files\": [");
+        List<Map.Entry<Path, FileTiming>> files = new ArrayList<>(fileTimings.entrySet());
+        files.sort(Comparator.comparing((Map.Entry<Path, FileTiming> entry) -> entry.getKey()));
+        for (int i = 0; i < files.size(); i++) {
+            FileTiming timing = files.get(i).getValue();
+            Map<String, Object> fileEntries = new LinkedHashMap<>();
+            fileEntries.put("path", rootPath.relativize(files.get(i).getKey()).toString().replace('\\', '/'));
+            fileEntries.put("bytes", timing.bytes);
+            fileEntries.put("values", timing.values);
+            for (Phase phase : phases) {
+                if (timing.phaseNanos[phase.ordinal()] > 0) {
+                    fileEntries.put(phase.jsonName() + "Ms", new RawJson(formatMillis(timing.phaseNanos[phase.ordinal()])));
+                }
+            }
+            json.append(i == 0 ? "\n    {" : ",\n    {");
+            appendEntries(json, fileEntries);
+            json.append('}');
+        }
+        json.append(files.isEmpty() ? "]\n" : "\n  ]\n");
+        return json.append("}\n").toString();
+    }
+
+    private double valuesPerSecond(long processedValues) {
+        long wallNanos = getWallNanos();
+        return wallNanos > 0 ? processedValues * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos : 0;
+    }
+
+    private static void appendEntries(StringBuilder json, Map<String, Object> entries) {
+        int index = 0;
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            json.append(index++ > 0 ? ", " : "").append(quote(entry.getKey())).append(": ");
+            Object value = entry.getValue();
+            json.append(value instanceof String ? quote((String) value) : String.valueOf(value));
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Value written to JSON as is, like a formatted number
+     */
+    private static final class RawJson {
+        private final String json;
+
+        private RawJson(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public String toString() {
+            return json;
+        }
+    }
+}
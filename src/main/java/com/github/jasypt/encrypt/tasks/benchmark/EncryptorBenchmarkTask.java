@@ -0,0 +1,463 @@
+package com.github.jasypt.encrypt.tasks.benchmark;
+
+import com.github.jasypt.encrypt.runtime.AesGcmStringEncryptor;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import com.github.jasypt.encrypt.tasks.PasswordAwareTask;
+import com.github.jasypt.encrypt.tasks.file.JasyptConfigScanner;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.Directory;
+import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.options.Option;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.jasypt.exceptions.EncryptionInitializationException;
+import org.jasypt.exceptions.EncryptionOperationNotPossibleException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
+
+/**
+ * Measures encrypt and decrypt throughput and latency of the encryptors the other tasks would create, for every
+ * combination of the given algorithms, key obtention iterations and pool sizes. Every combination runs timed warm-up
+ * rounds and then measurement rounds, in which all threads call one shared encryptor as fast as they can, as in
+ * the parallel file processing. Results are printed as a table, followed by the fastest pool size
+ * of the configured algorithm. Encryptors are created for every combination and not shared through
+ * the {@link com.github.jasypt.encrypt.tasks.EncryptorService}, so they don't stay cached for the rest of the build.
+ */
+public class EncryptorBenchmarkTask extends PasswordAwareTask {
+
+    public static final String TASK_NAME = "jasyptBenchmark";
+    private static final String TASK_DESCRIPTION = "Measures encryptor throughput and latency for algorithms, pool sizes and key obtention iterations";
+
+    /**
+     * Used when no password is given, the timings don't depend on it
+     */
+    static final String BENCHMARK_PASSWORD = "jasypt-benchmark-password";
+    private static final String SAMPLE_VALUE = "jdbc-password-of-typical-length";
+    private static final List<String> DEFAULT_ALGORITHMS = Arrays.asList("PBEWITHHMACSHA512ANDAES_256", "PBEWITHHMACSHA256ANDAES_128", "PBEWITHMD5ANDDES");
+
+    private final Property<String> configFile = getProject().getObjects().property(String.class);
+    private final ListProperty<String> algorithms = getProject().getObjects().listProperty(String.class);
+    private final ListProperty<Integer> poolSizes = getProject().getObjects().listProperty(Integer.class);
+    private final ListProperty<Integer> keyObtentionIterations = getProject().getObjects().listProperty(Integer.class);
+    private final Property<Integer> threads = getProject().getObjects().property(Integer.class);
+    private final Property<Integer> warmupRounds = getProject().getObjects().property(Integer.class);
+    private final Property<Integer> measurementRounds = getProject().getObjects().property(Integer.class);
+    private final Property<Integer> roundMillis = getProject().getObjects().property(Integer.class);
+    private final Directory projectDirectory = getProject().getLayout().getProjectDirectory();
+
+    public EncryptorBenchmarkTask() {
+        this.setGroup(TASK_GROUP_NAME);
+        this.setDescription(TASK_DESCRIPTION);
+        getPassword().convention(secretProvider(getProject().getProviders(), PASSWORD_PROPERTY, PASSWORD_ENVIRONMENT_VARIABLE).orElse(BENCHMARK_PASSWORD));
+        threads.convention(Runtime.getRuntime().availableProcessors());
+        warmupRounds.convention(1);
+        measurementRounds.convention(3);
+        roundMillis.convention(200);
+    }
+
+    @Override
+    public void taskAction() {
+        JasyptConfig configuredConfig = readConfiguredConfig();
+        String configuredAlgorithm = algorithmOf(configuredConfig);
+        int configuredIterations = Integer.parseInt(configuredConfig.getKeyObtentionIterations());
+        int threadCount = threads.get();
+
+        List<String> algorithmList = orDefault(algorithms.getOrElse(Collections.emptyList()), withFirst(configuredAlgorithm, DEFAULT_ALGORITHMS));
+        List<Integer> iterationList = orDefault(keyObtentionIterations.getOrElse(Collections.emptyList()),
+                withFirst(configuredIterations, Collections.singletonList(configuredIterations * 10)));
+        List<Integer> poolSizeList = orDefault(poolSizes.getOrElse(Collections.emptyList()), defaultPoolSizes(threadCount));
+
+        System.out.println("Benchmarking with " + threadCount + " threads, " + warmupRounds.get() + " warm-up and "
+                + measurementRounds.get() + " measurement rounds of " + roundMillis.get() + " ms");
+        List<BenchmarkResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (String algorithm : algorithmList) {
+                for (int iterations : iterationList) {
+                    // aes-gcm encryptors are thread-safe and have no pool
+                    List<Integer> casePoolSizes = isAesGcm(algorithm) ? poolSizeList.subList(0, 1) : poolSizeList;
+                    for (int poolSize : casePoolSizes) {
+                        results.add(runCase(executor, threadCount, createConfig(configuredConfig, algorithm, iterations, poolSize)));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        printResults(results);
+        printFastestPoolSize(results, configuredAlgorithm, iterationList.contains(configuredIterations) ? configuredIterations : iterationList.get(0));
+    }
+
+    private JasyptConfig readConfiguredConfig() {
+        if (!configFile.isPresent()) {
+            return new JasyptConfig();
+        }
+        Path configPath = resolveConfigPath();
+        try {
+            return JasyptConfigScanner.readConfig(configPath);
+        } catch (IOException e) {
+            throw new GradleException("Can't read encryptor configuration: " + configPath, e);
+        }
+    }
+
+    /**
+     * @return configured config with the case settings. Algorithms other than the configured one get an IV generator
+     * that fits them, as the configured one may not.
+     */
+    private static JasyptConfig createConfig(JasyptConfig configuredConfig, String algorithm, int iterations, int poolSize) {
+        JasyptConfig config = new JasyptConfig();
+        config.setStringOutputType(configuredConfig.getStringOutputType());
+        config.setSaltGeneratorClassname(configuredConfig.getSaltGeneratorClassname());
+        config.setProviderName(configuredConfig.getProviderName());
+        config.setProviderClassName(configuredConfig.getProviderClassName());
+        config.setKeyObtentionIterations(String.valueOf(iterations));
+        config.setPoolSize(String.valueOf(poolSize));
+        if (isAesGcm(algorithm)) {
+            config.setMode(AesGcmStringEncryptor.MODE_NAME);
+        } else {
+            config.setMode(JasyptConfig.PBE_MODE);
+            config.setAlgorithm(algorithm);
+            config.setIvGeneratorClassname(algorithm.equalsIgnoreCase(configuredConfig.getAlgorithm())
+                    ? configuredConfig.getIvGeneratorClassname()
+                    : ivGeneratorFor(algorithm));
+        }
+        return config;
+    }
+
+    private static String ivGeneratorFor(String algorithm) {
+        return algorithm.toUpperCase(Locale.ROOT).contains("AES") ? "org.jasypt.iv.RandomIvGenerator" : "org.jasypt.iv.NoIvGenerator";
+    }
+
+    private BenchmarkResult runCase(ExecutorService executor, int threadCount, JasyptConfig config) {
+        String algorithm = algorithmOf(config);
+        int iterations = Integer.parseInt(config.getKeyObtentionIterations());
+        int poolSize = Integer.parseInt(config.getPoolSize());
+        long initStart = System.nanoTime();
+        PBEStringEncryptor encryptor;
+        String encryptedValue;
+        try {
+            encryptor = newEncryptor(config, password());
+            encryptedValue = encryptor.encrypt(SAMPLE_VALUE);
+        } catch (EncryptionInitializationException | EncryptionOperationNotPossibleException e) {
+            return BenchmarkResult.unavailable(algorithm, iterations, poolSize, e);
+        }
+        long initNanos = System.nanoTime() - initStart;
+        Measurement encryption = measure(executor, threadCount, () -> encryptor.encrypt(SAMPLE_VALUE));
+        Measurement decryption = measure(executor, threadCount, () -> encryptor.decrypt(encryptedValue));
+        return new BenchmarkResult(algorithm, iterations, poolSize, initNanos, encryption, decryption);
+    }
+
+    private Measurement measure(ExecutorService executor, int threadCount, Supplier<String> operation) {
+        for (int round = 0; round < warmupRounds.get(); round++) {
+            runRound(executor, threadCount, operation);
+        }
+        Measurement measurement = new Measurement();
+        for (int round = 0; round < measurementRounds.get(); round++) {
+            measurement.add(runRound(executor, threadCount, operation));
+        }
+        return measurement;
+    }
+
+    /**
+     * All threads call the operation until the round time is over, every call is timed
+     */
+    private Measurement runRound(ExecutorService executor, int threadCount, Supplier<String> operation) {
+        long roundStart = System.nanoTime();
+        long deadline = roundStart + roundMillis.get() * 1_000_000L;
+        List<Future<LatencyRecorder>> callers = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            callers.add(executor.submit(() -> {
+                LatencyRecorder latencies = new LatencyRecorder();
+                long callStart;
+                while ((callStart = System.nanoTime()) < deadline) {
+                    operation.get();
+                    latencies.add(System.nanoTime() - callStart);
+                }
+                return latencies;
+            }));
+        }
+        Measurement measurement = new Measurement();
+        try {
+            for (Future<LatencyRecorder> caller : callers) {
+                measurement.latencies.addAll(caller.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Benchmark interrupted", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("Benchmark failed: " + e.getCause(), e.getCause());
+        }
+        measurement.nanos = System.nanoTime() - roundStart;
+        return measurement;
+    }
+
+    private static void printResults(List<BenchmarkResult> results) {
+        String format = "%-30s %10s %5s %9s %14s %14s %17s %17s%n";
+        System.out.printf(Locale.ROOT, format, "Algorithm", "Iterations", "Pool", "Init ms",
+                "Encrypt ops/s", "Decrypt ops/s", "Encrypt p50/p99", "Decrypt p50/p99");
+        for (BenchmarkResult result : results) {
+            String pool = isAesGcm(result.algorithm) ? "-" : String.valueOf(result.poolSize);
+            if (result.failure != null) {
+                System.out.printf(Locale.ROOT, "%-30s %10d %5s not available: %s%n", result.algorithm, result.iterations, pool, result.failure);
+                continue;
+            }
+            System.out.printf(Locale.ROOT, format, result.algorithm, result.iterations, pool, formatMillis(result.initNanos),
+                    formatRate(result.encryption.opsPerSecond()), formatRate(result.decryption.opsPerSecond()),
+                    formatLatencies(result.encryption), formatLatencies(result.decryption));
+        }
+    }
+
+    /**
+     * Pool sizes are compared by the mean of the encrypt and decrypt throughput
+     */
+    private static void printFastestPoolSize(List<BenchmarkResult> results, String algorithm, int iterations) {
+        if (isAesGcm(algorithm)) {
+            System.out.println("Pool size doesn't apply to " + AesGcmStringEncryptor.MODE_NAME + " mode, its encryptor is thread-safe");
+            return;
+        }
+        results.stream()
+                .filter((BenchmarkResult result) -> result.failure == null && result.iterations == iterations && result.algorithm.equalsIgnoreCase(algorithm))
+                .max(Comparator.comparingDouble(BenchmarkResult::meanOpsPerSecond))
+                .ifPresent((BenchmarkResult fastest) -> System.out.println("Fastest pool size for " + algorithm + " with " + iterations
+                        + " key obtention iterations: " + fastest.poolSize + " (" + formatRate(fastest.meanOpsPerSecond())
+                        + " ops/s), set jasypt.encryptor.pool-size=" + fastest.poolSize));
+    }
+
+    private static String formatRate(double opsPerSecond) {
+        return String.format(Locale.ROOT, "%.1f", opsPerSecond);
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String formatLatencies(Measurement measurement) {
+        return formatMillis(measurement.latencies.percentile(0.5)) + "/" + formatMillis(measurement.latencies.percentile(0.99));
+    }
+
+    private static String algorithmOf(JasyptConfig config) {
+        return AesGcmStringEncryptor.MODE_NAME.equalsIgnoreCase(config.getMode()) ? AesGcmStringEncryptor.MODE_NAME : config.getAlgorithm();
+    }
+
+    private static boolean isAesGcm(String algorithm) {
+        return AesGcmStringEncryptor.MODE_NAME.equalsIgnoreCase(algorithm);
+    }
+
+    /**
+     * @return 1, 2, 4 and further powers of two below the thread count, then the thread count itself
+     */
+    private static List<Integer> defaultPoolSizes(int threadCount) {
+        List<Integer> poolSizes = new ArrayList<>();
+        for (int poolSize = 1; poolSize < threadCount; poolSize *= 2) {
+            poolSizes.add(poolSize);
+        }
+        poolSizes.add(threadCount);
+        return poolSizes;
+    }
+
+    private static <T> List<T> withFirst(T first, List<T> others) {
+        Set<T> values = new LinkedHashSet<>();
+        values.add(first);
+        values.addAll(others);
+        return new ArrayList<>(values);
+    }
+
+    private static <T> List<T> orDefault(List<T> values, List<T> defaultValues) {
+        return values.isEmpty() ? defaultValues : new ArrayList<>(new LinkedHashSet<>(values));
+    }
+
+    private Path resolveConfigPath() {
+        return projectDirectory.getAsFile().toPath().resolve(configFile.get()).normalize();
+    }
+
+    @Override
+    public void validateOptions() {
+        if (configFile.isPresent() && !Files.isRegularFile(resolveConfigPath())) {
+            throw new OptionValidationException("--config file not found: " + resolveConfigPath());
+        }
+        requireAtLeast("--threads", threads.get(), 1);
+        requireAtLeast("--warmup-rounds", warmupRounds.get(), 0);
+        requireAtLeast("--measurement-rounds", measurementRounds.get(), 1);
+        requireAtLeast("--round-millis", roundMillis.get(), 1);
+        for (int poolSize : poolSizes.getOrElse(Collections.emptyList())) {
+            requireAtLeast("--pool-size", poolSize, 1);
+        }
+        for (int iterations : keyObtentionIterations.getOrElse(Collections.emptyList())) {
+            requireAtLeast("--key-obtention-iterations", iterations, 1);
+        }
+    }
+
+    private static void requireAtLeast(String option, int value, int minimum) {
+        if (value < minimum) {
+            throw new OptionValidationException(option + " should be at least " + minimum);
+        }
+    }
+
+    private static int parseNumber(String option, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new OptionValidationException(option + " should be a number");
+        }
+    }
+
+    private static List<Integer> parseNumbers(String option, List<String> values) {
+        List<Integer> numbers = new ArrayList<>(values.size());
+        for (String value : values) {
+            numbers.add(parseNumber(option, value));
+        }
+        return numbers;
+    }
+
+    @Option(option = "config", description = "property or yaml file with the jasypt.encryptor.* configuration to compare against, relative to the project directory")
+    public void setConfigFile(String configFile) {
+        this.configFile.set(configFile);
+    }
+
+    @Internal
+    public Property<String> getConfigFile() {
+        return configFile;
+    }
+
+    @Option(option = "algorithm", description = "algorithm to measure, or aes-gcm for the aes-gcm mode. Defaults to the configured one and a few common PBE algorithms")
+    public void setAlgorithms(List<String> algorithms) {
+        this.algorithms.set(algorithms);
+    }
+
+    @Internal
+    public ListProperty<String> getAlgorithms() {
+        return algorithms;
+    }
+
+    @Option(option = "pool-size", description = "pool size to measure. Defaults to powers of two up to the thread count")
+    public void setPoolSizes(List<String> poolSizes) {
+        this.poolSizes.set(parseNumbers("--pool-size", poolSizes));
+    }
+
+    @Internal
+    public ListProperty<Integer> getPoolSizes() {
+        return poolSizes;
+    }
+
+    @Option(option = "key-obtention-iterations", description = "key obtention iterations to measure. Defaults to the configured value and ten times more")
+    public void setKeyObtentionIterations(List<String> keyObtentionIterations) {
+        this.keyObtentionIterations.set(parseNumbers("--key-obtention-iterations", keyObtentionIterations));
+    }
+
+    @Internal
+    public ListProperty<Integer> getKeyObtentionIterations() {
+        return keyObtentionIterations;
+    }
+
+    @Option(option = "threads", description = "number of threads calling the encryptor, defaults to the number of processors")
+    public void setThreads(String threads) {
+        this.threads.set(parseNumber("--threads", threads));
+    }
+
+    @Internal
+    public Property<Integer> getThreads() {
+        return threads;
+    }
+
+    @Option(option = "warmup-rounds", description = "number of warm-up rounds of every measured combination, defaults to 1")
+    public void setWarmupRounds(String warmupRounds) {
+        this.warmupRounds.set(parseNumber("--warmup-rounds", warmupRounds));
+    }
+
+    @Internal
+    public Property<Integer> getWarmupRounds() {
+        return warmupRounds;
+    }
+
+    @Option(option = "measurement-rounds", description = "number of measurement rounds of every measured combination, defaults to 3")
+    public void setMeasurementRounds(String measurementRounds) {
+        this.measurementRounds.set(parseNumber("--measurement-rounds", measurementRounds));
+    }
+
+    @Internal
+    public Property<Integer> getMeasurementRounds() {
+        return measurementRounds;
+    }
+
+    @Option(option = "round-millis", description = "duration of one round in milliseconds, defaults to 200")
+    public void setRoundMillis(String roundMillis) {
+        this.roundMillis.set(parseNumber("--round-millis", roundMillis));
+    }
+
+    @Internal
+    public Property<Integer> getRoundMillis() {
+        return roundMillis;
+    }
+
+    /**
+     * Calls and latencies of one or more rounds
+     */
+    private static final class Measurement {
+
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private long nanos;
+
+        void add(Measurement round) {
+            latencies.addAll(round.latencies);
+            nanos += round.nanos;
+        }
+
+        double opsPerSecond() {
+            return nanos == 0 ? 0 : latencies.size() * 1_000_000_000.0 / nanos;
+        }
+    }
+
+    private static final class BenchmarkResult {
+
+        private final String algorithm;
+        private final int iterations;
+        private final int poolSize;
+        private final long initNanos;
+        private final Measurement encryption;
+        private final Measurement decryption;
+        private final String failure;
+
+        private BenchmarkResult(String algorithm, int iterations, int poolSize, long initNanos,
+                                Measurement encryption, Measurement decryption, String failure) {
+            this.algorithm = algorithm;
+            this.iterations = iterations;
+            this.poolSize = poolSize;
+            this.initNanos = initNanos;
+            this.encryption = encryption;
+            this.decryption = decryption;
+            this.failure = failure;
+        }
+
+        BenchmarkResult(String algorithm, int iterations, int poolSize, long initNanos, Measurement encryption, Measurement decryption) {
+            this(algorithm, iterations, poolSize, initNanos, encryption, decryption, null);
+        }
+
+        static BenchmarkResult unavailable(String algorithm, int iterations, int poolSize, RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new BenchmarkResult(algorithm, iterations, poolSize, 0, null, null, String.valueOf(cause.getMessage()));
+        }
+
+        double meanOpsPerSecond() {
+            return (encryption.opsPerSecond() + decryption.opsPerSecond()) / 2;
+        }
+    }
+}
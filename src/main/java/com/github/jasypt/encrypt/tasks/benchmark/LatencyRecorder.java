@@ -0,0 +1,50 @@
+package com.github.jasypt.encrypt.tasks.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Call latencies in nanoseconds, recorded by a single thread and merged after the round
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int size;
+    private boolean sorted = true;
+
+    void add(long latency) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latency;
+        sorted = false;
+    }
+
+    void addAll(LatencyRecorder other) {
+        if (size + other.size > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.latencies, 0, latencies, size, other.size);
+        size += other.size;
+        sorted = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param fraction between 0 and 1, like 0.99 for the 99th percentile
+     * @return latency at the percentile, 0 when nothing was recorded
+     */
+    long percentile(double fraction) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, size);
+            sorted = true;
+        }
+        int index = (int) Math.ceil(fraction * size) - 1;
+        return latencies[Math.max(0, Math.min(size - 1, index))];
+    }
+}
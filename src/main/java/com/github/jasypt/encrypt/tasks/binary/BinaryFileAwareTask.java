@@ -0,0 +1,173 @@
+package com.github.jasypt.encrypt.tasks.binary;
+
+import com.github.jasypt.encrypt.runtime.AesGcmFileCipher;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import com.github.jasypt.encrypt.tasks.PasswordAwareTask;
+import com.github.jasypt.encrypt.tasks.file.JasyptConfigScanner;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.Directory;
+import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.options.Option;
+import org.jasypt.exceptions.EncryptionOperationNotPossibleException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * Encrypts or decrypts a whole file of any content with {@link AesGcmFileCipher}, segment by segment through file
+ * channels, so memory use doesn't depend on the file size. The result is written to a sibling temp file and moved
+ * over the output file when complete, a failed run leaves no partial output behind.
+ */
+public abstract class BinaryFileAwareTask extends PasswordAwareTask {
+
+    private final Property<String> inputFile = getProject().getObjects().property(String.class);
+    private final Property<String> outputFile = getProject().getObjects().property(String.class);
+    private final Property<String> configFile = getProject().getObjects().property(String.class);
+    private final Directory projectDirectory = getProject().getLayout().getProjectDirectory();
+
+    /**
+     * @return count of plain bytes processed
+     */
+    protected abstract long process(AesGcmFileCipher cipher, FileChannel source, FileChannel target) throws IOException;
+
+    /**
+     * @return output file used when {@code --output-file} is not set, {@code null} when there is none
+     */
+    protected abstract String defaultOutputFile(String inputFile);
+
+    /**
+     * @return prefix of the result output, like {@code Encrypted file: }
+     */
+    protected abstract String resultLabel();
+
+    @Override
+    public void taskAction() {
+        Path inputPath = resolve(inputFile.get());
+        Path outputPath = resolveOutputPath();
+        AesGcmFileCipher cipher = AesGcmFileCipher.fromConfig(readConfig(), password());
+        long start = System.nanoTime();
+        long plainBytes;
+        try {
+            plainBytes = processFile(cipher, inputPath, outputPath);
+        } catch (EncryptionOperationNotPossibleException e) {
+            String reason = e.getMessage() != null ? e.getMessage() : "wrong password or corrupted file";
+            throw new GradleException("Can't process " + inputPath + ": " + reason, e);
+        } catch (IOException e) {
+            throw new GradleException("Failed to process file: " + e.getMessage(), e);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        getLogger().lifecycle("{}{} ({} bytes in {} ms)", resultLabel(), outputPath, plainBytes, millis);
+    }
+
+    private long processFile(AesGcmFileCipher cipher, Path inputPath, Path outputPath) throws IOException {
+        Path outputDirectory = outputPath.getParent();
+        Files.createDirectories(outputDirectory);
+        Path tempFile = Files.createTempFile(outputDirectory, "." + outputPath.getFileName(), ".tmp");
+        try {
+            long plainBytes;
+            try (FileChannel source = FileChannel.open(inputPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                plainBytes = process(cipher, source, target);
+            }
+            copyFilePermissions(inputPath, tempFile);
+            try {
+                Files.move(tempFile, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return plainBytes;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Keystores and keys are often readable by their owner only, the output keeps that
+     */
+    private static void copyFilePermissions(Path sourceFile, Path targetFile) throws IOException {
+        if (Files.getFileStore(sourceFile).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(targetFile, Files.getPosixFilePermissions(sourceFile));
+        }
+    }
+
+    private JasyptConfig readConfig() {
+        if (!configFile.isPresent()) {
+            return new JasyptConfig();
+        }
+        Path configPath = resolve(configFile.get());
+        try {
+            return JasyptConfigScanner.readConfig(configPath);
+        } catch (IOException e) {
+            throw new GradleException("Can't read encryptor configuration: " + configPath, e);
+        }
+    }
+
+    private Path resolveOutputPath() {
+        String output = outputFile.isPresent() ? outputFile.get() : defaultOutputFile(inputFile.get());
+        return resolve(output);
+    }
+
+    private Path resolve(String path) {
+        return projectDirectory.getAsFile().toPath().resolve(path).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void validateOptions() {
+        if (!inputFile.isPresent()) {
+            throw new OptionValidationException("--input-file is required!");
+        }
+        if (!Files.isRegularFile(resolve(inputFile.get()))) {
+            throw new OptionValidationException("--input-file not found: " + resolve(inputFile.get()));
+        }
+        if (!outputFile.isPresent() && defaultOutputFile(inputFile.get()) == null) {
+            throw new OptionValidationException("--output-file is required for " + inputFile.get());
+        }
+        if (resolveOutputPath().equals(resolve(inputFile.get()))) {
+            throw new OptionValidationException("--output-file can't be the input file");
+        }
+        if (configFile.isPresent() && !Files.isRegularFile(resolve(configFile.get()))) {
+            throw new OptionValidationException("--config file not found: " + resolve(configFile.get()));
+        }
+    }
+
+    @Option(option = "input-file", description = "[required] file to process, relative to the project directory")
+    public void setInputFile(String inputFile) {
+        this.inputFile.set(inputFile);
+    }
+
+    /**
+     * Not a task input, the file is processed on every run
+     */
+    @Internal
+    public Property<String> getInputFile() {
+        return inputFile;
+    }
+
+    @Option(option = "output-file", description = "file for the result, relative to the project directory")
+    public void setOutputFile(String outputFile) {
+        this.outputFile.set(outputFile);
+    }
+
+    @Internal
+    public Property<String> getOutputFile() {
+        return outputFile;
+    }
+
+    @Option(option = "config", description = "properties or yaml file with the 'jasypt.encryptor.*' configuration, relative to the project directory")
+    public void setConfigFile(String configFile) {
+        this.configFile.set(configFile);
+    }
+
+    @Internal
+    public Property<String> getConfigFile() {
+        return configFile;
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.jasypt.encrypt.tasks.binary;
+
+import com.github.jasypt.encrypt.runtime.AesGcmFileCipher;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
+
+public class DecryptFileTask extends BinaryFileAwareTask {
+
+    public static final String TASK_NAME = "decryptFile";
+    private static final String TASK_DESCRIPTION = "Decrypts the given file encrypted by the encryptFile task";
+
+    public DecryptFileTask() {
+        this.setGroup(TASK_GROUP_NAME);
+        this.setDescription(TASK_DESCRIPTION);
+    }
+
+    @Override
+    protected long process(AesGcmFileCipher cipher, FileChannel source, FileChannel target) throws IOException {
+        return cipher.decrypt(source, target);
+    }
+
+    /**
+     * @return the input file without the {@code .enc} extension
+     */
+    @Override
+    protected String defaultOutputFile(String inputFile) {
+        String extension = EncryptFileTask.ENCRYPTED_FILE_EXTENSION;
+        if (inputFile.length() > extension.length() && inputFile.endsWith(extension)) {
+            return inputFile.substring(0, inputFile.length() - extension.length());
+        }
+        return null;
+    }
+
+    @Override
+    protected String resultLabel() {
+        return "Decrypted file: ";
+    }
+}
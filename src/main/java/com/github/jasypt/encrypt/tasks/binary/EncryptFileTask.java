@@ -0,0 +1,66 @@
+package com.github.jasypt.encrypt.tasks.binary;
+
+import com.github.jasypt.encrypt.runtime.AesGcmFileCipher;
+import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
+
+public class EncryptFileTask extends BinaryFileAwareTask {
+
+    public static final String TASK_NAME = "encryptFile";
+    public static final String ENCRYPTED_FILE_EXTENSION = ".enc";
+    private static final String TASK_DESCRIPTION = "Encrypts the given file, like a keystore or a certificate";
+
+    private final Property<Integer> segmentSize = getProject().getObjects().property(Integer.class);
+
+    public EncryptFileTask() {
+        this.setGroup(TASK_GROUP_NAME);
+        this.setDescription(TASK_DESCRIPTION);
+        segmentSize.convention(AesGcmFileCipher.DEFAULT_SEGMENT_SIZE);
+    }
+
+    @Override
+    protected long process(AesGcmFileCipher cipher, FileChannel source, FileChannel target) throws IOException {
+        return cipher.encrypt(source, target, segmentSize.get());
+    }
+
+    @Override
+    protected String defaultOutputFile(String inputFile) {
+        return inputFile + ENCRYPTED_FILE_EXTENSION;
+    }
+
+    @Override
+    protected String resultLabel() {
+        return "Encrypted file: ";
+    }
+
+    @Override
+    public void validateOptions() {
+        super.validateOptions();
+        int size = segmentSize.get();
+        if (size < AesGcmFileCipher.MIN_SEGMENT_SIZE || size > AesGcmFileCipher.MAX_SEGMENT_SIZE) {
+            throw new OptionValidationException("--segment-size should be between " + AesGcmFileCipher.MIN_SEGMENT_SIZE
+                    + " and " + AesGcmFileCipher.MAX_SEGMENT_SIZE);
+        }
+    }
+
+    @Option(option = "segment-size", description = "plain bytes per encrypted segment, defaults to " + AesGcmFileCipher.DEFAULT_SEGMENT_SIZE)
+    public void setSegmentSize(String segmentSize) {
+        try {
+            this.segmentSize.set(Integer.parseInt(segmentSize.trim()));
+        } catch (NumberFormatException e) {
+            throw new OptionValidationException("--segment-size should be a number");
+        }
+    }
+
+    @Internal
+    public Property<Integer> getSegmentSize() {
+        return segmentSize;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import org.gradle.api.GradleException;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Resolves the encryptor configuration and initializes the encryptor on a background thread, while files are still
+ * filtered and matched. Crypto work blocks in {@link #get()} until the encryptor is ready. When no file turns out
+ * to have values, {@link #abandon()} skips the initialization if it hasn't started yet.
+ */
+final class AsyncEncryptor {
+
+    private static final String THREAD_NAME = "jasypt-encryptor-init";
+
+    @FunctionalInterface
+    interface ConfigResolver {
+        JasyptConfig resolve() throws IOException;
+    }
+
+    private final CompletableFuture<PBEStringEncryptor> encryptor = new CompletableFuture<>();
+    private volatile boolean abandoned;
+
+    private AsyncEncryptor() {}
+
+    static AsyncEncryptor start(ConfigResolver configResolver, Function<JasyptConfig, PBEStringEncryptor> initializer) {
+        AsyncEncryptor asyncEncryptor = new AsyncEncryptor();
+        Thread initThread = new Thread(() -> asyncEncryptor.resolve(configResolver, initializer), THREAD_NAME);
+        initThread.setDaemon(true);
+        initThread.start();
+        return asyncEncryptor;
+    }
+
+    private void resolve(ConfigResolver configResolver, Function<JasyptConfig, PBEStringEncryptor> initializer) {
+        try {
+            JasyptConfig config = configResolver.resolve();
+            encryptor.complete(abandoned ? null : initializer.apply(config));
+        } catch (IOException e) {
+            encryptor.completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException | Error e) {
+            encryptor.completeExceptionally(e);
+        }
+    }
+
+    boolean isReady() {
+        return encryptor.isDone();
+    }
+
+    /**
+     * @return the initialized encryptor, waits until it is ready
+     * @throws UncheckedIOException when the configuration can't be read
+     */
+    PBEStringEncryptor get() {
+        try {
+            return encryptor.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GradleException("Encryptor initialization failed", cause);
+        }
+    }
+
+    /**
+     * Skips the initialization when it hasn't started, then waits for the background thread, so nothing
+     * touches the task after its action has completed
+     */
+    void abandon() {
+        abandoned = true;
+        try {
+            encryptor.join();
+        } catch (CompletionException ignored) {
+            // nobody needs the encryptor, so its failure doesn't matter
+        }
+    }
+}
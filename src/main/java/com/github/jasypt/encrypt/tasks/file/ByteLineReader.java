@@ -0,0 +1,129 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines like {@link java.io.BufferedReader#readLine()} and keeps the byte offsets of the current line,
+ * so a value can later be replaced in place. Lines end at {@code \n}, {@code \r\n} or {@code \r}, these bytes never
+ * occur inside a multibyte UTF-8 sequence. Lines with non-ASCII bytes are decoded strictly, so a line that is not valid
+ * UTF-8 is reported as malformed instead of silently getting replacement characters.
+ */
+final class ByteLineReader {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String DEFAULT_LINE_SEPARATOR = "\n";
+
+    private final InputStream input;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private int position;
+    private int limit;
+    private long offset;
+
+    private byte[] lineBytes = new byte[256];
+    private long lineStart;
+    private long lineEnd;
+    private String lineSeparator;
+    private boolean malformed;
+
+    ByteLineReader(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * @return next line without its separator, {@code null} at the end of the stream
+     */
+    String readLine() throws IOException {
+        lineStart = offset;
+        int lineLength = 0;
+        boolean ascii = true;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (lineLength == 0) {
+                    return null;
+                }
+                lineEnd = offset;
+                break;
+            }
+            byte character = chunk[position++];
+            offset++;
+            if (character == '\n') {
+                lineEnd = offset - 1;
+                rememberSeparator("\n");
+                break;
+            }
+            if (character == '\r') {
+                lineEnd = offset - 1;
+                if ((position < limit || fill()) && chunk[position] == '\n') {
+                    position++;
+                    offset++;
+                    rememberSeparator("\r\n");
+                } else {
+                    rememberSeparator("\r");
+                }
+                break;
+            }
+            if (lineLength == lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, lineLength * 2);
+            }
+            lineBytes[lineLength++] = character;
+            ascii &= character >= 0;
+        }
+        malformed = false;
+        if (!ascii) {
+            try {
+                return decoder.decode(ByteBuffer.wrap(lineBytes, 0, lineLength)).toString();
+            } catch (CharacterCodingException e) {
+                malformed = true;
+            }
+        }
+        return new String(lineBytes, 0, lineLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return {@code true} when the current line is not valid UTF-8, its text then has replacement characters
+     */
+    boolean isMalformed() {
+        return malformed;
+    }
+
+    /**
+     * @return byte offset of the first byte of the current line
+     */
+    long getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * @return byte offset right after the current line, before its separator
+     */
+    long getLineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * @return the first separator of the stream, {@code \n} while none has been read
+     */
+    String getLineSeparator() {
+        return lineSeparator != null ? lineSeparator : DEFAULT_LINE_SEPARATOR;
+    }
+
+    private void rememberSeparator(String separator) {
+        if (lineSeparator == null) {
+            lineSeparator = separator;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = input.read(chunk, 0, chunk.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
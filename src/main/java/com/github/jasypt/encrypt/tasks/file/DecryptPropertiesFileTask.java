@@ -6,11 +6,12 @@ import java.util.regex.Pattern;
 
 import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
 
-public class DecryptPropertiesFileTask extends PropertiesFileAwareTask {
+public abstract class DecryptPropertiesFileTask extends PropertiesFileAwareTask {
 
     public static final String TASK_NAME = "decryptProperties";
+    public static final String AGGREGATE_TASK_NAME = "decryptAllProperties";
     private static final String TASK_DESCRIPTION = "Decrypts the property values wrapped with 'ENC(encrypted_text)'";
-    private static final Pattern DECRYPT_EXTRACTION_REGEX = Pattern.compile("ENC\\((.*)\\)");
+    static final Pattern DECRYPT_EXTRACTION_REGEX = Pattern.compile("ENC\\((.*)\\)");
 
     public DecryptPropertiesFileTask() {
         this.setGroup(TASK_GROUP_NAME);
@@ -22,7 +23,12 @@ public class DecryptPropertiesFileTask extends PropertiesFileAwareTask {
 
     @Override
     public String process(PBEStringEncryptor encryptor, String extractedValue) {
-        return encryptor.decrypt(extractedValue);
+        return ValueOperation.DECRYPT.process(encryptor, null, extractedValue);
+    }
+
+    @Override
+    ValueOperation valueOperation() {
+        return ValueOperation.DECRYPT;
     }
 
     @Override
@@ -40,4 +46,9 @@ public class DecryptPropertiesFileTask extends PropertiesFileAwareTask {
         return DECRYPT_EXTRACTION_REGEX;
     }
 
+    @Override
+    public String getValueMarker() {
+        return "ENC(";
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code .env} files like {@code .env}, {@code .env.local} or {@code production.env}. Values are single line
+ * {@code KEY=value} assignments, optionally quoted or exported, so every line is scanned on its own.
+ */
+final class DotEnvFormatHandler extends LineFormatHandler {
+
+    static final String NAME = "env";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accepts(String fileName) {
+        return fileName.equals(".env") || fileName.startsWith(".env.") || fileName.endsWith(".env");
+    }
+
+    @Override
+    public List<String> getFileNamePatterns() {
+        return Arrays.asList(".env", ".env.*", "*.env");
+    }
+
+    @Override
+    protected LineTokenizer newTokenizer(ValueSpanTokenizer.Listener listener) {
+        return new LineTokenizer() {
+            private int lineIndex = -1;
+
+            @Override
+            public void accept(String line) {
+                listener.line(++lineIndex, 1, line);
+            }
+
+            @Override
+            public void finish() {}
+        };
+    }
+}
@@ -5,9 +5,10 @@ import org.jasypt.encryption.pbe.PBEStringEncryptor;
 
 import java.util.regex.Pattern;
 
-public class EncryptPropertiesFileTask extends PropertiesFileAwareTask {
+public abstract class EncryptPropertiesFileTask extends PropertiesFileAwareTask {
 
     public static final String TASK_NAME = "encryptProperties";
+    public static final String AGGREGATE_TASK_NAME = "encryptAllProperties";
     private static final String TASK_DESCRIPTION = "Encrypts the property values wrapped with 'ENCRYPT(plain_text)'";
     private static final Pattern ENCRYPT_EXTRACTION_REGEX = Pattern.compile("ENCRYPT\\((.*)\\)");
 
@@ -21,7 +22,12 @@ public class EncryptPropertiesFileTask extends PropertiesFileAwareTask {
 
     @Override
     public String process(PBEStringEncryptor encryptor, String extractedValue) {
-        return encryptor.encrypt(extractedValue);
+        return ValueOperation.ENCRYPT.process(encryptor, null, extractedValue);
+    }
+
+    @Override
+    ValueOperation valueOperation() {
+        return ValueOperation.ENCRYPT;
     }
 
     @Override
@@ -39,4 +45,9 @@ public class EncryptPropertiesFileTask extends PropertiesFileAwareTask {
         return ENCRYPT_EXTRACTION_REGEX;
     }
 
+    @Override
+    public String getValueMarker() {
+        return "ENCRYPT(";
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Format specific part of the file processing. A handler finds the values of its files and reports each of them
+ * as a {@link ValueSite} with the byte range it replaces, so a rewrite only encodes the changed spans and copies
+ * the rest of the file as is. Handlers are stateless and registered in {@link FileFormats}.
+ */
+interface FileFormatHandler {
+
+    /**
+     * @return format name, as used by the {@code --file-format} option
+     */
+    String getName();
+
+    boolean accepts(String fileName);
+
+    /**
+     * @return Ant style file name patterns of the accepted files, like {@code *.properties}
+     */
+    List<String> getFileNamePatterns();
+
+    /**
+     * @return sites in file order, their byte ranges never overlap
+     */
+    List<ValueSite> collectValueSites(PropertyFileSource source, ValueMatcher valueMatcher) throws IOException;
+
+    /**
+     * Adds the {@code jasypt.encryptor.*} keys of the file to the target. Formats that can't configure
+     * the encryptor ignore this.
+     */
+    default void scanConfig(PropertyFileSource source, Properties target) throws IOException {}
+
+    /**
+     * @param rewrittenConfig new values of {@code jasypt.encryptor.*} keys
+     * @return sites replacing the values of the given keys that are set in the file with another value, in file order
+     */
+    default List<ValueSite> collectConfigSites(PropertyFileSource source, Properties rewrittenConfig) throws IOException {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the supported {@link FileFormatHandler}s. A new format only needs a handler added to {@link #HANDLERS}.
+ */
+final class FileFormats {
+
+    static final FileFormatHandler PROPERTIES = new PropertiesFormatHandler();
+    static final FileFormatHandler YAML = new YamlFormatHandler();
+
+    static final List<FileFormatHandler> HANDLERS = Collections.unmodifiableList(Arrays.asList(
+            PROPERTIES, YAML, new DotEnvFormatHandler(), new JsonFormatHandler(), new XmlFormatHandler()));
+
+    /**
+     * Formats processed unless {@code --file-format} is set, the other ones are opt-in
+     */
+    static final List<String> DEFAULT_NAMES = Collections.unmodifiableList(Arrays.asList(PropertiesFormatHandler.NAME, YamlFormatHandler.NAME));
+
+    private FileFormats() {}
+
+    static List<String> names() {
+        return HANDLERS.stream()
+                .map(FileFormatHandler::getName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return handlers of the named formats, in registration order
+     * @throws IllegalArgumentException for an unknown format name
+     */
+    static List<FileFormatHandler> select(Collection<String> names) {
+        List<String> normalizedNames = names.stream()
+                .map((String name) -> name.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        for (String name : normalizedNames) {
+            if (!names().contains(name)) {
+                throw new IllegalArgumentException("Unknown file format '" + name + "', supported formats: " + String.join(", ", names()));
+            }
+        }
+        List<FileFormatHandler> selected = new ArrayList<>();
+        for (FileFormatHandler handler : HANDLERS) {
+            if (normalizedNames.contains(handler.getName())) {
+                selected.add(handler);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return the first handler accepting the file name, or {@code null}
+     */
+    static FileFormatHandler find(List<FileFormatHandler> handlers, String fileName) {
+        for (FileFormatHandler handler : handlers) {
+            if (handler.accepts(fileName)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.tasks.EncryptorService;
+import com.github.jasypt.encrypt.tasks.TaskMetrics;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Gradle work unit that transforms a single property file. Everything it needs is in its parameters: the file,
+ * the value settings, the operation and the keys of the encryptors held by the {@link EncryptorService}, so it
+ * doesn't depend on the task that submitted it. The values of a file are processed sequentially, the parallelism
+ * comes from the worker count. The outcome is written to the result file, which the task reads after all units
+ * have finished.
+ */
+public abstract class FileTransformAction implements WorkAction<FileTransformAction.Parameters> {
+
+    static final String VALUES_KEY = "values";
+    static final String BYTES_KEY = "bytes";
+    static final String REWRITTEN_KEY = "rewritten";
+    static final String PHASE_KEY_PREFIX = "nanos.";
+    static final String FAILURE_KEY_PREFIX = "failure.";
+
+    public interface Parameters extends WorkParameters {
+
+        RegularFileProperty getPropertyFile();
+
+        RegularFileProperty getResultFile();
+
+        Property<ValueOperation> getOperation();
+
+        Property<EncryptorService> getEncryptorService();
+
+        Property<String> getEncryptorKey();
+
+        /**
+         * Only set for {@link ValueOperation#ROTATE}
+         */
+        Property<String> getNewEncryptorKey();
+
+        ListProperty<String> getFileFormats();
+
+        /**
+         * Custom extract pattern, values are matched by the marker when not set
+         */
+        Property<String> getValueExtractPattern();
+
+        Property<String> getValueMarker();
+
+        Property<String> getPropertyPrefix();
+
+        Property<String> getPropertySuffix();
+
+        MapProperty<String, String> getRewrittenConfig();
+
+        /**
+         * Read only operations stop at the first failed value of the file unless set
+         */
+        Property<Boolean> getReportAll();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        ValueOperation operation = parameters.getOperation().get();
+        EncryptorService encryptorService = parameters.getEncryptorService().get();
+        PBEStringEncryptor encryptor = encryptorService.getEncryptor(parameters.getEncryptorKey().get());
+        PBEStringEncryptor newEncryptor = parameters.getNewEncryptorKey().isPresent()
+                ? encryptorService.getEncryptor(parameters.getNewEncryptorKey().get())
+                : null;
+        Path file = parameters.getPropertyFile().get().getAsFile().toPath();
+        boolean stopOnFailure = !parameters.getReportAll().getOrElse(false);
+        Properties result = new Properties();
+        int[] failureCount = new int[1];
+        TaskMetrics metrics = new TaskMetrics();
+        PropertyFileTransformer transformer = new PropertyFileTransformer(
+                FileFormats.select(parameters.getFileFormats().get()),
+                createValueMatcher(parameters),
+                parameters.getPropertyPrefix().get(),
+                parameters.getPropertySuffix().get(),
+                operation.isReadOnly(),
+                createRewrittenConfig(parameters),
+                false,
+                (PBEStringEncryptor valueEncryptor, String extractedValue) -> operation.process(valueEncryptor, newEncryptor, extractedValue),
+                (Path failedFile, int lineNumber, RuntimeException cause) -> {
+                    if (!operation.isReadOnly()) {
+                        throw PropertyFileTransformer.valueFailure(failedFile, lineNumber, cause);
+                    }
+                    String failureKey = FAILURE_KEY_PREFIX + failureCount[0]++;
+                    result.setProperty(failureKey + ".line", String.valueOf(lineNumber));
+                    if (cause.getMessage() != null) {
+                        result.setProperty(failureKey + ".message", cause.getMessage());
+                    }
+                },
+                () -> stopOnFailure && failureCount[0] > 0,
+                metrics,
+                null);
+        try {
+            PropertyFileSource source = PropertyFileSource.read(file);
+            List<ValueSite> valueSites = transformer.match(source);
+            int valueCount = valueSites.isEmpty() ? 0 : transformer.transform(encryptor, source, valueSites);
+            result.setProperty(VALUES_KEY, String.valueOf(valueCount));
+            result.setProperty(BYTES_KEY, String.valueOf(source.getSize()));
+            result.setProperty(REWRITTEN_KEY, String.valueOf(!valueSites.isEmpty() && !transformer.isReadOnly()));
+            for (TaskMetrics.Phase phase : TaskMetrics.Phase.values()) {
+                result.setProperty(PHASE_KEY_PREFIX + phase.name(), String.valueOf(metrics.getPhaseNanos(phase)));
+            }
+            try (OutputStream output = Files.newOutputStream(parameters.getResultFile().get().getAsFile().toPath())) {
+                result.store(output, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ValueMatcher createValueMatcher(Parameters parameters) {
+        if (parameters.getValueExtractPattern().isPresent()) {
+            return ValueMatcher.forPattern(Pattern.compile(parameters.getValueExtractPattern().get()));
+        }
+        return ValueMatcher.forMarker(parameters.getValueMarker().get());
+    }
+
+    private static Properties createRewrittenConfig(Parameters parameters) {
+        Properties rewrittenConfig = new Properties();
+        rewrittenConfig.putAll(parameters.getRewrittenConfig().getOrElse(Collections.emptyMap()));
+        return rewrittenConfig;
+    }
+
+    /**
+     * @throws GradleException when the work unit has finished without writing its result
+     */
+    static Properties readResult(Path resultFile) throws IOException {
+        if (!Files.isRegularFile(resultFile)) {
+            throw new GradleException("No result of the work unit: " + resultFile);
+        }
+        Properties result = new Properties();
+        try (InputStream input = Files.newInputStream(resultFile)) {
+            result.load(input);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ignore rules of a directory and all of its parents, read from {@code .gitignore} files.
+ * Supports comments, negation, directory-only patterns with trailing slash, anchored patterns and glob wildcards.
+ * As in git, rules of nested directories override the parent ones and the last matching rule wins.
+ */
+final class GitIgnoreRules {
+
+    static final GitIgnoreRules EMPTY = new GitIgnoreRules(null, null, Collections.emptyList());
+
+    private static final String GITIGNORE_FILE_NAME = ".gitignore";
+
+    private final GitIgnoreRules parent;
+    private final Path directory;
+    private final List<Rule> rules;
+
+    private static final class Rule {
+        private final PathMatcher matcher;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean matchFileName;
+
+        private Rule(PathMatcher matcher, boolean negated, boolean directoryOnly, boolean matchFileName) {
+            this.matcher = matcher;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.matchFileName = matchFileName;
+        }
+    }
+
+    private GitIgnoreRules(GitIgnoreRules parent, Path directory, List<Rule> rules) {
+        this.parent = parent;
+        this.directory = directory;
+        this.rules = rules;
+    }
+
+    /**
+     * @return rules of the given directory, combined with the rules of all directories between it and the root
+     */
+    static GitIgnoreRules forDirectory(Path rootPath, Path directory) throws IOException {
+        GitIgnoreRules rules = EMPTY.child(rootPath);
+        Path current = rootPath;
+        for (Path segment : rootPath.relativize(directory)) {
+            if (segment.toString().isEmpty()) {
+                continue;
+            }
+            current = current.resolve(segment);
+            rules = rules.child(current);
+        }
+        return rules;
+    }
+
+    /**
+     * @return rules extended with the {@code .gitignore} file of the given child directory, if there is one
+     */
+    GitIgnoreRules child(Path childDirectory) throws IOException {
+        Path gitIgnoreFile = childDirectory.resolve(GITIGNORE_FILE_NAME);
+        if (!Files.isRegularFile(gitIgnoreFile)) {
+            return this;
+        }
+        List<Rule> childRules = new ArrayList<>();
+        for (String line : Files.readAllLines(gitIgnoreFile, StandardCharsets.UTF_8)) {
+            Rule rule = parseRule(line.trim());
+            if (rule != null) {
+                childRules.add(rule);
+            }
+        }
+        return childRules.isEmpty() ? this : new GitIgnoreRules(this, childDirectory, childRules);
+    }
+
+    boolean isIgnored(Path path, boolean isDirectory) {
+        Boolean ignored = matchRules(path, isDirectory);
+        return ignored != null && ignored;
+    }
+
+    private Boolean matchRules(Path path, boolean isDirectory) {
+        Boolean ignored = parent != null ? parent.matchRules(path, isDirectory) : null;
+        if (directory == null || !path.startsWith(directory)) {
+            return ignored;
+        }
+        Path relativePath = directory.relativize(path);
+        for (Rule rule : rules) {
+            if (rule.directoryOnly && !isDirectory) {
+                continue;
+            }
+            Path matchedPath = rule.matchFileName ? path.getFileName() : relativePath;
+            if (rule.matcher.matches(matchedPath)) {
+                ignored = !rule.negated;
+            }
+        }
+        return ignored;
+    }
+
+    private static Rule parseRule(String pattern) {
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+        boolean negated = pattern.startsWith("!");
+        if (negated) {
+            pattern = pattern.substring(1);
+        }
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+        PathMatcher matcher = PropertyFileWalker.createGlobMatcher(pattern);
+        return new Rule(matcher, negated, directoryOnly, !anchored);
+    }
+}
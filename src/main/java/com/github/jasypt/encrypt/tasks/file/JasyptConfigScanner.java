@@ -0,0 +1,292 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Extracts {@code jasypt.encryptor.*} keys from property and yaml files without a full parse. Files that don't
+ * contain the {@code jasypt} bytes are skipped, and scanning of a file stops as soon as all config keys are found.
+ * Yaml keys are resolved by tracking the indentation of the parent mappings, so both nested and flat
+ * (dot separated) notations are supported. The same rules locate the values of config keys that are rewritten
+ * in place, like by a configuration rotation.
+ */
+public final class JasyptConfigScanner {
+
+    private static final String CONFIG_MARKER_TEXT = "jasypt";
+    private static final MarkerPrefilter CONFIG_MARKER = new MarkerPrefilter(CONFIG_MARKER_TEXT);
+    private static final Set<String> CONFIG_KEYS = JasyptConfig.getPropertyNames();
+
+    private JasyptConfigScanner() {}
+
+    /**
+     * @return config of a single property or yaml file, keys missing in the file keep their defaults
+     */
+    public static JasyptConfig readConfig(Path file) throws IOException {
+        Properties properties = new Properties();
+        scan(PropertyFileSource.read(file), FileFormats.YAML.accepts(file.getFileName().toString()), properties);
+        return JasyptConfig.fromProperties(properties);
+    }
+
+    /**
+     * Adds found config keys to the given properties, replacing values found in previously scanned files
+     */
+    static void scan(PropertyFileSource source, boolean isYamlFile, Properties target) throws IOException {
+        if (!source.containsMarker(CONFIG_MARKER)) {
+            return;
+        }
+        Properties fileProperties = new Properties();
+        try (BufferedReader reader = source.openReader()) {
+            if (isYamlFile) {
+                scanYaml(reader, fileProperties);
+            } else {
+                scanProperties(reader, fileProperties);
+            }
+        }
+        target.putAll(fileProperties);
+    }
+
+    /**
+     * @param rewrittenConfig new values of config keys
+     * @return sites replacing the values of the given config keys that differ from their new value, a site renders
+     * the new value and has no values to process
+     * @throws GradleException when a rewritten key is set in a form that can't be replaced on its line, like a yaml
+     *                         block scalar or a continued properties line
+     */
+    static List<ValueSite> collectConfigSites(PropertyFileSource source, boolean isYamlFile, Properties rewrittenConfig) throws IOException {
+        if (rewrittenConfig.isEmpty() || !source.containsMarker(CONFIG_MARKER)) {
+            return Collections.emptyList();
+        }
+        List<ValueSite> configSites = new ArrayList<>();
+        try (InputStream input = source.openStream()) {
+            ByteLineReader reader = new ByteLineReader(input);
+            if (isYamlFile) {
+                collectYamlSites(source.getPath(), reader, rewrittenConfig, configSites);
+            } else {
+                collectPropertiesSites(source.getPath(), reader, rewrittenConfig, configSites);
+            }
+        }
+        return configSites;
+    }
+
+    private static void collectPropertiesSites(Path file, ByteLineReader reader, Properties rewrittenConfig, List<ValueSite> configSites) throws IOException {
+        boolean continuation = false;
+        String line;
+        for (int lineIndex = 0; (line = reader.readLine()) != null; lineIndex++) {
+            boolean continuedLine = continuation;
+            continuation = isContinued(line);
+            String trimmedLine = trimLeading(line);
+            if (continuedLine || trimmedLine.isEmpty() || trimmedLine.startsWith("#") || trimmedLine.startsWith("!")) {
+                continue;
+            }
+            int keyStart = line.length() - trimmedLine.length();
+            int keyEnd = keyStart;
+            while (keyEnd < line.length() && !isKeySeparator(line.charAt(keyEnd))) {
+                keyEnd += line.charAt(keyEnd) == '\\' ? 2 : 1;
+            }
+            keyEnd = Math.min(keyEnd, line.length());
+            String key = line.substring(keyStart, keyEnd);
+            String newValue = rewrittenConfig.getProperty(key);
+            if (newValue == null) {
+                continue;
+            }
+            if (continuation) {
+                throw new GradleException("Line " + (lineIndex + 1) + " of " + file + " continues '" + key
+                        + "' on the next line, join its lines to rewrite the value");
+            }
+            Properties lineProperties = new Properties();
+            lineProperties.load(new StringReader(line));
+            if (newValue.equals(lineProperties.getProperty(key))) {
+                continue;
+            }
+            int valueStart = skipWhitespace(line, keyEnd);
+            if (valueStart < line.length() && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')) {
+                valueStart = skipWhitespace(line, valueStart + 1);
+            }
+            addConfigSite(file, reader, lineIndex, line, valueStart, line.length(), newValue.replace("\\", "\\\\"), configSites);
+        }
+    }
+
+    private static void collectYamlSites(Path file, ByteLineReader reader, Properties rewrittenConfig, List<ValueSite> configSites) throws IOException {
+        Deque<String> parentKeys = new ArrayDeque<>();
+        Deque<Integer> parentIndents = new ArrayDeque<>();
+        String line;
+        for (int lineIndex = 0; (line = reader.readLine()) != null; lineIndex++) {
+            String trimmedLine = line.trim();
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#") || trimmedLine.startsWith("-") || trimmedLine.startsWith("---")) {
+                continue;
+            }
+            int indent = line.indexOf(trimmedLine.charAt(0));
+            while (!parentIndents.isEmpty() && parentIndents.peek() >= indent) {
+                parentIndents.pop();
+                parentKeys.pop();
+            }
+            int separatorIndex = trimmedLine.indexOf(':');
+            if (separatorIndex <= 0) {
+                continue;
+            }
+            String key = unquote(trimmedLine.substring(0, separatorIndex).trim());
+            String value = stripComment(trimmedLine.substring(separatorIndex + 1).trim());
+            if (value.isEmpty()) {
+                parentKeys.push(key);
+                parentIndents.push(indent);
+                continue;
+            }
+            String fullKey = toFullKey(parentKeys, key);
+            String newValue = rewrittenConfig.getProperty(fullKey);
+            if (newValue == null || newValue.equals(unquote(value))) {
+                continue;
+            }
+            if (value.startsWith("|") || value.startsWith(">")) {
+                throw new GradleException("Line " + (lineIndex + 1) + " of " + file + " sets '" + fullKey
+                        + "' with a block scalar, write it on one line to rewrite the value");
+            }
+            int valueStart = line.indexOf(value, indent + separatorIndex + 1);
+            char quote = value.charAt(0);
+            String renderedValue = quote == '"' || quote == '\'' ? quote + newValue + quote : newValue;
+            addConfigSite(file, reader, lineIndex, line, valueStart, valueStart + value.length(), renderedValue, configSites);
+        }
+    }
+
+    private static void addConfigSite(Path file, ByteLineReader reader, int lineIndex, String line, int valueStart, int valueEnd,
+                                      String renderedValue, List<ValueSite> configSites) {
+        if (reader.isMalformed()) {
+            throw new GradleException("Line " + (lineIndex + 1) + " of " + file + " is not valid UTF-8, its values can't be replaced without changing other bytes");
+        }
+        long startOffset = reader.getLineStart() + line.substring(0, valueStart).getBytes(StandardCharsets.UTF_8).length;
+        long endOffset = reader.getLineStart() + line.substring(0, valueEnd).getBytes(StandardCharsets.UTF_8).length;
+        configSites.add(new ValueSite(lineIndex, startOffset, endOffset, Collections.emptyList(),
+                (List<String> processedValues) -> renderedValue));
+    }
+
+    private static boolean isKeySeparator(char character) {
+        return character == '=' || character == ':' || Character.isWhitespace(character);
+    }
+
+    private static int skipWhitespace(String line, int index) {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Joins continued lines into logical lines, and parses the logical lines that can hold a config key with
+     * {@link Properties#load(Reader)}, so separators, whitespace and escapes follow the same rules as before
+     */
+    private static void scanProperties(BufferedReader reader, Properties found) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null && found.size() < CONFIG_KEYS.size()) {
+            String trimmedLine = trimLeading(line);
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#") || trimmedLine.startsWith("!")) {
+                continue;
+            }
+            StringBuilder logicalLine = new StringBuilder(trimmedLine);
+            while (isContinued(logicalLine) && (line = reader.readLine()) != null) {
+                logicalLine.setLength(logicalLine.length() - 1);
+                logicalLine.append(trimLeading(line));
+            }
+            if (logicalLine.indexOf(CONFIG_MARKER_TEXT) < 0) {
+                continue;
+            }
+            Properties lineProperties = new Properties();
+            lineProperties.load(new StringReader(logicalLine.toString()));
+            for (String key : lineProperties.stringPropertyNames()) {
+                if (CONFIG_KEYS.contains(key)) {
+                    found.setProperty(key, lineProperties.getProperty(key));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true when the line ends with an odd number of backslashes, an even number is an escaped backslash
+     */
+    private static boolean isContinued(CharSequence line) {
+        int backslashCount = 0;
+        for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+            backslashCount++;
+        }
+        return backslashCount % 2 == 1;
+    }
+
+    private static String trimLeading(String line) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        return line.substring(start);
+    }
+
+    private static void scanYaml(BufferedReader reader, Properties found) throws IOException {
+        Deque<String> parentKeys = new ArrayDeque<>();
+        Deque<Integer> parentIndents = new ArrayDeque<>();
+        String line;
+        while ((line = reader.readLine()) != null && found.size() < CONFIG_KEYS.size()) {
+            String trimmedLine = line.trim();
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#") || trimmedLine.startsWith("-") || trimmedLine.startsWith("---")) {
+                continue;
+            }
+            int indent = line.indexOf(trimmedLine.charAt(0));
+            while (!parentIndents.isEmpty() && parentIndents.peek() >= indent) {
+                parentIndents.pop();
+                parentKeys.pop();
+            }
+            int separatorIndex = trimmedLine.indexOf(':');
+            if (separatorIndex <= 0) {
+                continue;
+            }
+            String key = unquote(trimmedLine.substring(0, separatorIndex).trim());
+            String value = stripComment(trimmedLine.substring(separatorIndex + 1).trim());
+            if (value.isEmpty()) {
+                parentKeys.push(key);
+                parentIndents.push(indent);
+                continue;
+            }
+            String fullKey = toFullKey(parentKeys, key);
+            if (CONFIG_KEYS.contains(fullKey)) {
+                found.setProperty(fullKey, unquote(value));
+            }
+        }
+    }
+
+    private static String toFullKey(Deque<String> parentKeys, String key) {
+        StringBuilder fullKey = new StringBuilder();
+        parentKeys.descendingIterator().forEachRemaining((String parentKey) -> fullKey.append(parentKey).append('.'));
+        return fullKey.append(key).toString();
+    }
+
+    private static String stripComment(String value) {
+        if (value.startsWith("\"") || value.startsWith("'")) {
+            int closingQuoteIndex = value.indexOf(value.charAt(0), 1);
+            return closingQuoteIndex > 0 ? value.substring(0, closingQuoteIndex + 1) : value;
+        }
+        int commentIndex = value.indexOf(" #");
+        return commentIndex >= 0 ? value.substring(0, commentIndex).trim() : value;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2) {
+            char first = value.charAt(0);
+            char last = value.charAt(value.length() - 1);
+            if ((first == '"' || first == '\'') && first == last) {
+                return value.substring(1, value.length() - 1);
+            }
+        }
+        return value;
+    }
+}
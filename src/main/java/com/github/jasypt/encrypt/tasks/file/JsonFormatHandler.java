@@ -0,0 +1,76 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.tasks.JsonStrings;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JSON files. Values are found in string literals, object keys are skipped. Values are unescaped before processing
+ * and the processed ones are escaped again, so a decrypted value with quotes or line breaks keeps the file valid.
+ * Line and block comments, as allowed by JSONC files, are skipped too.
+ */
+final class JsonFormatHandler extends TextFormatHandler {
+
+    static final String NAME = "json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accepts(String fileName) {
+        return fileName.endsWith(".json");
+    }
+
+    @Override
+    public List<String> getFileNamePatterns() {
+        return Collections.singletonList("*.json");
+    }
+
+    @Override
+    protected void collectValues(String text, ValueMatcher valueMatcher, ValueCollector collector) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char character = text.charAt(i);
+            if (character == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+                i = indexOrLength(text, "\n", i);
+            } else if (character == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+                i = indexOrLength(text, "*/", i + 2) + 1;
+            } else if (character == '"') {
+                int contentStart = i + 1;
+                int contentEnd = findStringEnd(text, contentStart);
+                if (contentEnd == length) {
+                    return;
+                }
+                if (!isKey(text, contentEnd + 1)) {
+                    collectRegion(text, contentStart, contentEnd, valueMatcher, JsonStrings::unescape, JsonStrings::escape, collector);
+                }
+                i = contentEnd;
+            }
+        }
+    }
+
+    private static int findStringEnd(String text, int contentStart) {
+        for (int i = contentStart; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == '\\') {
+                i++;
+            } else if (character == '"' || character == '\n') {
+                return character == '"' ? i : text.length();
+            }
+        }
+        return text.length();
+    }
+
+    private static boolean isKey(String text, int afterString) {
+        for (int i = afterString; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (!Character.isWhitespace(character)) {
+                return character == ':';
+            }
+        }
+        return false;
+    }
+}
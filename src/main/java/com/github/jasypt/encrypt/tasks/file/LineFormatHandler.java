@@ -0,0 +1,196 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.gradle.api.GradleException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base of the line oriented formats. Lines are read with their byte offsets and pushed through a tokenizer, so a value
+ * on a single line replaces just its marker span, while a multiline value replaces all of its lines.
+ * <p>
+ * A value in a line whose bytes are not valid UTF-8 fails the file, since the line couldn't be written back unchanged.
+ */
+abstract class LineFormatHandler implements FileFormatHandler {
+
+    /**
+     * Consumer of the lines of one file
+     */
+    interface LineTokenizer {
+
+        void accept(String line);
+
+        /**
+         * Called after the last line
+         */
+        void finish();
+    }
+
+    /**
+     * @return tokenizer reporting the lines and multiline values of one file to the listener
+     */
+    protected abstract LineTokenizer newTokenizer(ValueSpanTokenizer.Listener listener);
+
+    @Override
+    public List<ValueSite> collectValueSites(PropertyFileSource source, ValueMatcher valueMatcher) throws IOException {
+        try (InputStream input = source.openStream()) {
+            ByteLineReader reader = new ByteLineReader(input);
+            SiteCollector collector = new SiteCollector(source.getPath(), valueMatcher, reader);
+            LineTokenizer tokenizer = newTokenizer(collector);
+            String line;
+            for (int lineIndex = 0; (line = reader.readLine()) != null; lineIndex++) {
+                collector.lineOffsets.add(reader.getLineStart(), reader.getLineEnd());
+                if (reader.isMalformed()) {
+                    collector.malformedLines.set(lineIndex);
+                }
+                tokenizer.accept(line);
+            }
+            tokenizer.finish();
+            return collector.valueSites;
+        }
+    }
+
+    private static final class SiteCollector implements ValueSpanTokenizer.Listener {
+
+        private final Path file;
+        private final ValueMatcher valueMatcher;
+        private final ByteLineReader reader;
+        private final LineOffsets lineOffsets = new LineOffsets();
+        private final BitSet malformedLines = new BitSet();
+        private final List<ValueSite> valueSites = new ArrayList<>();
+
+        private SiteCollector(Path file, ValueMatcher valueMatcher, ByteLineReader reader) {
+            this.file = file;
+            this.valueMatcher = valueMatcher;
+            this.reader = reader;
+        }
+
+        @Override
+        public void line(int lineIndex, int lineCount, String text) {
+            lineOffsets.releaseBefore(lineIndex);
+            int[] matches = valueMatcher.find(text);
+            if (matches.length == 0) {
+                return;
+            }
+            checkWellFormed(lineIndex, lineCount);
+            long lineStart = lineOffsets.start(lineIndex);
+            long lineEnd = lineOffsets.end(lineIndex + lineCount - 1);
+            if (lineCount == 1) {
+                for (int offset = 0; offset < matches.length; offset += ValueMatcher.OFFSETS_PER_MATCH) {
+                    int matchStart = matches[offset + ValueMatcher.MATCH_START];
+                    int matchEnd = matches[offset + ValueMatcher.MATCH_END];
+                    long startOffset = lineStart + TextPositions.utf8Length(text, 0, matchStart);
+                    long endOffset = startOffset + TextPositions.utf8Length(text, matchStart, matchEnd);
+                    valueSites.add(new ValueSite(lineIndex, startOffset, endOffset,
+                            ValueMatcher.value(text, matches, offset / ValueMatcher.OFFSETS_PER_MATCH), (String processedValue) -> processedValue));
+                }
+                return;
+            }
+            List<String> extractedValues = new ArrayList<>(matches.length / ValueMatcher.OFFSETS_PER_MATCH);
+            for (int i = 0; i < matches.length / ValueMatcher.OFFSETS_PER_MATCH; i++) {
+                extractedValues.add(ValueMatcher.value(text, matches, i));
+            }
+            valueSites.add(new ValueSite(lineIndex, lineStart, lineEnd, extractedValues,
+                    (List<String> processedValues) -> ValueMatcher.replace(text, matches, processedValues)));
+        }
+
+        /**
+         * The processed value is split into lines as long as the longest original one and written with the block indentation.
+         * A folded block gets it on one line, since its line breaks would be read back as spaces.
+         */
+        @Override
+        public void block(int headerIndex, String header, ValueSpanTokenizer.Block block) {
+            String extractedValue = valueMatcher.findFirst(block.getJoinedValue());
+            if (extractedValue == null) {
+                line(headerIndex, 1, header);
+                return;
+            }
+            checkWellFormed(block.getFirstLineIndex(), block.getLineCount());
+            lineOffsets.releaseBefore(headerIndex);
+            int lineLength = Math.max(1, block.getMaxLineLength());
+            boolean folded = block.getStyle() == ValueSpanTokenizer.Style.YAML_FOLDED;
+            String padding = String.join("", Collections.nCopies(block.getIndentation(), " "));
+            String continuation = block.getStyle() == ValueSpanTokenizer.Style.PROPERTIES_CONTINUATION ? "\\" : "";
+            String lineSeparator = reader.getLineSeparator();
+            int lastLineIndex = block.getFirstLineIndex() + block.getLineCount() - 1;
+            valueSites.add(new ValueSite(block.getFirstLineIndex(), lineOffsets.start(block.getFirstLineIndex()), lineOffsets.end(lastLineIndex),
+                    extractedValue, (String processedValue) -> formatMultiline(processedValue,
+                            folded ? Math.max(1, processedValue.length()) : lineLength, padding, continuation, lineSeparator)));
+        }
+
+        /**
+         * @throws GradleException when a line of the value is not valid UTF-8
+         */
+        private void checkWellFormed(int firstLineIndex, int lineCount) {
+            int malformedLine = malformedLines.nextSetBit(firstLineIndex);
+            if (malformedLine >= 0 && malformedLine < firstLineIndex + lineCount) {
+                throw new GradleException("Line " + (malformedLine + 1) + " of " + file
+                        + " is not valid UTF-8, its values can't be replaced without changing other bytes");
+            }
+        }
+    }
+
+    private static String formatMultiline(String processedValue, int lineLength, String padding, String continuation, String lineSeparator) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < processedValue.length(); i += lineLength) {
+            if (i > 0) {
+                lines.append(continuation).append(lineSeparator);
+            }
+            lines.append(padding).append(processedValue, i, Math.min(processedValue.length(), i + lineLength));
+        }
+        return lines.toString();
+    }
+
+    /**
+     * Offsets of the lines the tokenizer may still report. Lines before the last reported one are dropped,
+     * so memory use depends on the longest multiline value and not on the file size.
+     */
+    private static final class LineOffsets {
+
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int firstIndex;
+        private int count;
+        private int releasableCount;
+
+        void add(long start, long end) {
+            if (count == starts.length) {
+                compactOrGrow();
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        long start(int lineIndex) {
+            return starts[lineIndex - firstIndex];
+        }
+
+        long end(int lineIndex) {
+            return ends[lineIndex - firstIndex];
+        }
+
+        void releaseBefore(int lineIndex) {
+            releasableCount = Math.max(releasableCount, lineIndex - firstIndex);
+        }
+
+        private void compactOrGrow() {
+            if (releasableCount >= count / 2) {
+                System.arraycopy(starts, releasableCount, starts, 0, count - releasableCount);
+                System.arraycopy(ends, releasableCount, ends, 0, count - releasableCount);
+                firstIndex += releasableCount;
+                count -= releasableCount;
+                releasableCount = 0;
+            } else {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+        }
+    }
+}
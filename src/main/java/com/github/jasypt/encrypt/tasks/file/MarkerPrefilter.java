@@ -0,0 +1,63 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Searches raw file bytes for an ASCII value marker like {@code ENCRYPT(}. Files without the marker can be
+ * dropped before any decoding, line splitting or regex work. Since the marker is ASCII, a byte match is exact
+ * for UTF-8 encoded files.
+ * <p>
+ * Files are bulk-read in chunks of {@link #CHUNK_SIZE} bytes, with the marker length minus one bytes carried
+ * over between chunks, so memory use is constant regardless of file size.
+ */
+final class MarkerPrefilter {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final byte[] marker;
+    private final ThreadLocal<ByteBuffer> chunkBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_SIZE));
+
+    MarkerPrefilter(String marker) {
+        this.marker = marker.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    boolean containsMarker(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = chunkBuffer.get();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                if (indexOf(buffer.array(), buffer.limit()) >= 0) {
+                    return true;
+                }
+                int carriedOver = Math.min(marker.length - 1, buffer.limit());
+                buffer.position(buffer.limit() - carriedOver);
+                buffer.compact();
+            }
+            return false;
+        }
+    }
+
+    int indexOf(byte[] bytes, int length) {
+        byte first = marker[0];
+        int lastStart = length - marker.length;
+        for (int i = 0; i <= lastStart; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            int matched = 1;
+            while (matched < marker.length && bytes[i + matched] == marker[matched]) {
+                matched++;
+            }
+            if (matched == marker.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
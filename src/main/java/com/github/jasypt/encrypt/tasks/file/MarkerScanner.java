@@ -0,0 +1,83 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.Arrays;
+
+/**
+ * Single pass scanner for the built-in value markers like {@code ENCRYPT(value)}. Every marker on a line is found,
+ * and the value ends at the parenthesis that balances the marker's opening one, so {@code ENCRYPT(a(b))} yields
+ * {@code a(b)}. When the parentheses never balance, the value runs to the last closing parenthesis of the line,
+ * as the greedy default expression used to do.
+ * <p>
+ * Values are reported as {@code [valueStart, valueEnd)} offset pairs, so nothing is copied until a value is extracted.
+ */
+final class MarkerScanner {
+
+    private static final int[] NO_VALUES = new int[0];
+    private static final char OPEN = '(';
+    private static final char CLOSE = ')';
+
+    private final String marker;
+
+    /**
+     * @param marker value marker including the opening parenthesis, like {@code ENC(}
+     */
+    MarkerScanner(String marker) {
+        if (marker.isEmpty() || marker.charAt(marker.length() - 1) != OPEN) {
+            throw new IllegalArgumentException("Value marker should end with '" + OPEN + "': " + marker);
+        }
+        this.marker = marker;
+    }
+
+    /**
+     * @return offset pairs of all values in the text, empty when there are none
+     */
+    int[] scan(String text) {
+        int markerStart = text.indexOf(marker);
+        if (markerStart < 0) {
+            return NO_VALUES;
+        }
+        int[] ranges = new int[2];
+        int count = 0;
+        while (markerStart >= 0) {
+            int valueStart = markerStart + marker.length();
+            int valueEnd = findValueEnd(text, valueStart);
+            if (valueEnd < 0) {
+                break;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = valueStart;
+            ranges[count++] = valueEnd;
+            markerStart = text.indexOf(marker, valueEnd + 1);
+        }
+        return count == ranges.length ? ranges : Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * @return the first value in the text, or {@code null}
+     */
+    String findFirst(String text) {
+        int markerStart = text.indexOf(marker);
+        if (markerStart < 0) {
+            return null;
+        }
+        int valueStart = markerStart + marker.length();
+        int valueEnd = findValueEnd(text, valueStart);
+        return valueEnd >= 0 ? text.substring(valueStart, valueEnd) : null;
+    }
+
+    private static int findValueEnd(String text, int valueStart) {
+        int depth = 1;
+        for (int i = valueStart; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == OPEN) {
+                depth++;
+            } else if (character == CLOSE && --depth == 0) {
+                return i;
+            }
+        }
+        int lastClose = text.lastIndexOf(CLOSE);
+        return lastClose >= valueStart ? lastClose : -1;
+    }
+}
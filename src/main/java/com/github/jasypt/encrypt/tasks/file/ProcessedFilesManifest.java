@@ -0,0 +1,157 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent record of files that have already been processed by a task. Every entry keeps the file size,
+ * modification time and SHA-256 content hash of the file as it was left after processing.
+ * Size and modification time are compared first, so unchanged files are skipped without being read.
+ * <p>
+ * Manifest format, one entry per line:
+ * <pre>
+ * settings &lt;fingerprint&gt;
+ * &lt;sha-256&gt; &lt;size&gt; &lt;last modified millis&gt; &lt;relative path&gt;
+ * </pre>
+ */
+final class ProcessedFilesManifest {
+
+    private static final String SETTINGS_HEADER = "settings ";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final Path manifestPath;
+    private final Path rootPath;
+    private final String settingsFingerprint;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        private final String hash;
+        private final long size;
+        private final long lastModified;
+
+        private Entry(String hash, long size, long lastModified) {
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private ProcessedFilesManifest(Path manifestPath, Path rootPath, String settingsFingerprint) {
+        this.manifestPath = manifestPath;
+        this.rootPath = rootPath;
+        this.settingsFingerprint = settingsFingerprint;
+    }
+
+    /**
+     * Loads the manifest from disk. Entries are discarded when the manifest was written with other task settings,
+     * since the same content may then produce different results.
+     */
+    static ProcessedFilesManifest load(Path manifestPath, Path rootPath, String settingsFingerprint) throws IOException {
+        ProcessedFilesManifest manifest = new ProcessedFilesManifest(manifestPath, rootPath, settingsFingerprint);
+        if (!Files.isRegularFile(manifestPath)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(SETTINGS_HEADER + settingsFingerprint)) {
+                return manifest;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ", 4);
+                if (parts.length == 4) {
+                    manifest.entries.put(parts[3], new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    boolean isUnchanged(Path file) throws IOException {
+        Entry entry = entries.get(relativeName(file));
+        if (entry == null) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() != entry.size) {
+            return false;
+        }
+        if (attributes.lastModifiedTime().toMillis() == entry.lastModified) {
+            return true;
+        }
+        return entry.hash.equals(hash(file));
+    }
+
+    void record(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            entries.put(relativeName(file), new Entry(hash(file), attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+            entries.remove(relativeName(file));
+        }
+    }
+
+    void save() throws IOException {
+        Files.createDirectories(manifestPath.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8)) {
+            writer.write(SETTINGS_HEADER + settingsFingerprint);
+            writer.newLine();
+            for (Map.Entry<String, Entry> fileEntry : new TreeMap<>(entries).entrySet()) {
+                Entry entry = fileEntry.getValue();
+                writer.write(entry.hash + " " + entry.size + " " + entry.lastModified + " " + fileEntry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    static String sha256Hex(byte[] bytes) {
+        MessageDigest digest = newSha256Digest();
+        return toHex(digest.digest(bytes));
+    }
+
+    private String relativeName(Path file) {
+        return rootPath.relativize(file.toAbsolutePath()).toString().replace('\\', '/');
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest digest = newSha256Digest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 digest is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(Character.forDigit((value >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(value & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -1,58 +1,89 @@
 package com.github.jasypt.encrypt.tasks.file;
 
-import com.github.jasypt.encrypt.tasks.JasyptConfig;
-import com.tvd12.properties.file.mapping.PropertiesMapper;
-import com.tvd12.properties.file.reader.MultiFileReader;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import com.github.jasypt.encrypt.tasks.TaskMetrics;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.options.Option;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
 import com.github.jasypt.encrypt.tasks.PasswordAwareTask;
 import org.jasypt.encryption.pbe.PBEStringEncryptor;
 import org.slf4j.Marker;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public abstract class PropertiesFileAwareTask extends PasswordAwareTask {
 
-    private static final Pattern PROPERTIES_PATTERN = Pattern.compile(".*\\.properties|.*\\.ya?ml");
-    private static final Set<String> EXCLUDED_DIRECTORIES = new HashSet<>(Arrays.asList(".gradle", "build", "out", "target", ".idea", "gradle"));
-    private static final int TAB_WHITESPACE_INDENTATION_COUNT = 4;
-    private static final int SINGLE_WHITESPACE_INDENTATION_COUNT = 1;
+    private static final String MANIFEST_DIRECTORY = "jasypt";
+    private static final String REPORT_DIRECTORY = "reports/jasypt";
+    private static final int DEFAULT_WATCH_DEBOUNCE_MILLIS = 300;
     
-    private Pattern valueExtractorPattern;
-    private String fileFilterPattern;
-    
-    static final class FilePropertiesHolder {
-        private final List<String> fileLines;
-        private final AtomicInteger linesEncrypted;
-
-        public FilePropertiesHolder(List<String> fileLines, AtomicInteger linesEncrypted) {
-            this.fileLines = fileLines;
-            this.linesEncrypted = linesEncrypted;
-        }
-
-        public List<String> getFileLines() {
-            return fileLines;
-        }
-        public AtomicInteger getLinesEncrypted() {
-            return linesEncrypted;
-        }
-    }
+    private final Property<String> valueExtractPattern = getProject().getObjects().property(String.class);
+    private final Property<String> fileFilterPattern = getProject().getObjects().property(String.class);
+    private final ListProperty<String> sourceDirs = getProject().getObjects().listProperty(String.class);
+    private final ListProperty<String> includes = getProject().getObjects().listProperty(String.class);
+    private final ListProperty<String> excludes = getProject().getObjects().listProperty(String.class);
+    private final ListProperty<String> fileFormats = getProject().getObjects().listProperty(String.class);
+    private final DirectoryProperty rootDirectory = getProject().getObjects().directoryProperty();
+    private final ConfigurableFileCollection propertyFiles = getProject().getObjects().fileCollection();
+    private final ConfigurableFileCollection nestedProjectDirectories = getProject().getObjects().fileCollection();
+    private final Provider<RegularFile> manifestFile;
+    private final Provider<RegularFile> reportFile;
+    private final int maxWorkerCount;
+    private boolean respectGitIgnore;
+    private boolean parallel;
+    private int parallelism;
+    private boolean incremental;
+    private boolean inProcess;
+    private boolean watch;
+    private int watchDebounceMillis = DEFAULT_WATCH_DEBOUNCE_MILLIS;
 
+    private transient Pattern valueExtractorPattern;
+    private transient ValueMatcher valueMatcher;
+    private transient List<FileFormatHandler> formatHandlers;
+    private transient List<String> formatHandlerNames;
+    private transient List<Path> discoveredPaths;
+    private transient List<Object> discoverySettings;
+    private transient long discoveryNanos;
+    private transient volatile PropertyFileWatcher fileWatcher;
+    private transient volatile Map<Path, Properties> fileConfigs = Collections.emptyMap();
+    private transient PropertyFileTransformer transformer;
+    
     public abstract String process(PBEStringEncryptor encryptor, String extractedValue);
 
     @Internal
@@ -64,307 +95,997 @@ public abstract class PropertiesFileAwareTask extends PasswordAwareTask {
     @Internal
     public abstract Pattern getDefaultExtractPattern();
 
+    /**
+     * @return literal prefix of values matched by the default extract pattern, used to skip files without values
+     */
+    @Internal
+    public abstract String getValueMarker();
+
+    /**
+     * @return {@code true} when values are only processed for verification and files are never written
+     */
+    @Internal
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    /**
+     * Called when a value can't be processed. Fails the task by default.
+     *
+     * @param file       file containing the value
+     * @param lineNumber line number, starting from 1, where the value begins
+     * @param cause      encryptor exception
+     */
+    protected void onValueFailure(Path file, int lineNumber, RuntimeException cause) {
+        throw PropertyFileTransformer.valueFailure(file, lineNumber, cause);
+    }
+
+    /**
+     * @return {@code true} to stop processing of remaining files and values
+     */
+    protected boolean shouldStopProcessing() {
+        return false;
+    }
+
+    /**
+     * Called before files are processed, once per run and once per change in watch mode
+     */
+    protected void beforeFilesProcessed() {}
+
+    /**
+     * Called after all files are processed and before the incremental manifest is saved
+     */
+    protected void afterFilesProcessed() {}
+
+    /**
+     * Called in watch mode once the discovered files are watched
+     */
+    protected void afterWatchStarted(List<Path> watchedPaths) {}
+
+    /**
+     * Called in watch mode after every batch of file events has been handled
+     *
+     * @param processedPaths files that have been processed, empty when the events were only the task's own
+     *                       rewrites or files that are not processed
+     */
+    protected void afterWatchedChanges(List<Path> processedPaths) {}
+
+    /**
+     * @return false to leave a discovered file out of processing, like a task's own configuration file
+     */
+    protected boolean acceptsPropertyFile(Path file) {
+        return true;
+    }
+
+    /**
+     * @return new values of {@code jasypt.encryptor.*} keys written into the files in the same pass as the values,
+     * {@code null} to leave the config keys unchanged
+     */
+    @Internal
+    Properties getRewrittenConfig() {
+        return null;
+    }
+
+    /**
+     * @return operation of a built-in task, which Gradle workers run without the task. {@code null} for tasks with
+     * their own {@link #process(PBEStringEncryptor, String)}, which are always processed in process.
+     */
+    ValueOperation valueOperation() {
+        return null;
+    }
+
+    /**
+     * Sets the parameters of a work unit that only the task knows about, like the key of a second encryptor
+     */
+    void configureWorkParameters(FileTransformAction.Parameters parameters) {}
+
+    /**
+     * @return {@code jasypt.encryptor.*} keys of every file that has some, as found by the last config resolution
+     */
+    @Internal
+    Map<Path, Properties> getFileConfigs() {
+        return fileConfigs;
+    }
+
+    /**
+     * @return console message label for the processed values count
+     */
+    protected String processedValuesLabel() {
+        return "No of values changed";
+    }
+
+    @FunctionalInterface
+    private interface PathFunction<T> {
+        T apply(Path path) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface PathPipeline {
+        void run() throws IOException;
+    }
+
+    /**
+     * Everything the task needs at execution time is captured here, so it can run from the configuration cache
+     * without access to the project
+     */
+    public PropertiesFileAwareTask() {
+        ProjectLayout layout = getProject().getLayout();
+        rootDirectory.convention(layout.getProjectDirectory());
+        fileFormats.convention(FileFormats.DEFAULT_NAMES);
+        propertyFiles.from((Callable<FileTree>) this::createPropertyFileTree);
+        manifestFile = layout.getBuildDirectory().file(MANIFEST_DIRECTORY + "/" + getName() + ".manifest");
+        reportFile = layout.getBuildDirectory().file(REPORT_DIRECTORY + "/" + getName() + ".json");
+        maxWorkerCount = getProject().getGradle().getStartParameter().getMaxWorkerCount();
+        getOutputs().upToDateWhen(new IncrementalSpec());
+    }
+
+    private static final class IncrementalSpec implements Spec<Task> {
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return ((PropertiesFileAwareTask) task).isIncremental();
+        }
+    }
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @Override
     public void taskAction() {
+        metrics().reset();
         try {
-            List<Path> matchingPaths = listApplicationPropertyPaths();
-            AtomicInteger encryptedLinesCount = new AtomicInteger();
-            PBEStringEncryptor encryptor = resolvePropertyEncryptor(matchingPaths);
-            
-            for (Path matching : matchingPaths) {
-                try (FileInputStream fileInputStream = new FileInputStream(matching.toFile());
-                     InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream, StandardCharsets.UTF_8);
-                     BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-
-                    List<String> allLines = bufferedReader.lines().collect(Collectors.toList());
-                    String fileExtension = getFileExtensionByName(matching.toFile().getName());
-                    boolean isYamlFile = fileExtension.equals("yml") || fileExtension.equals("yaml");
-                    FilePropertiesHolder resultFile = isYamlFile ? handleYamlFile(encryptor, allLines) : handlePropertiesFile(encryptor, allLines);
-                    
-                    if (resultFile.getLinesEncrypted().get() > 0) {
-                        Files.write(matching, resultFile.getFileLines(), StandardCharsets.UTF_8);
-                    }
-                    encryptedLinesCount.addAndGet(resultFile.getLinesEncrypted().get());
-                }
+            runPipeline(this::processPropertyFiles);
+            if (watch) {
+                watchPropertyFiles();
             }
-            logProcessedStatus(matchingPaths, encryptedLinesCount);
-
         } catch (IOException e) {
             getLogger().error(Marker.ANY_MARKER, e);
+        } catch (UncheckedIOException e) {
+            getLogger().error(Marker.ANY_MARKER, e.getCause());
+        } finally {
+            discoveredPaths = null;
+            discoverySettings = null;
         }
     }
 
-    @Option(option = "value-extract-pattern", description = "Regular expression to extract the plain text. Defaults to ENCRYPT((.*))")
-    public void setValueRegex(String valueRegex) {
-        if (valueRegex != null && !valueRegex.trim().isEmpty()) {
-            this.valueExtractorPattern = Pattern.compile(valueRegex);
+    private void runPipeline(PathPipeline pipeline) throws IOException {
+        if (parallel && !useWorkers()) {
+            runInFilePool(pipeline);
+        } else {
+            pipeline.run();
         }
     }
 
-    @Option(option = "file-filter-pattern", description = "Include only these files")
-    public void setFileFilterPattern(String fileFilterPattern) {
-        this.fileFilterPattern = fileFilterPattern;
+    private void processPropertyFiles() throws IOException {
+        List<Path> matchingPaths = discoverPropertyPaths();
+        metrics().add(TaskMetrics.Phase.DISCOVERY, discoveryNanos);
+        processPropertyFiles(matchingPaths, matchingPaths);
     }
 
-    private List<Path> listApplicationPropertyPaths() {
-        Path rootPath = Paths.get(getProject().getRootDir().toURI());
-        List<Path> propertyPaths = new ArrayList<>();
+    /**
+     * @param matchingPaths all discovered files, the encryptor configuration is resolved from them
+     * @param foundPaths    files to process, all discovered ones or the changed ones in watch mode
+     */
+    private void processPropertyFiles(List<Path> matchingPaths, List<Path> foundPaths) throws IOException {
+        beforeFilesProcessed();
+        transformer = null; // settings like the rewritten config are known once the hook has run
+        ProcessedFilesManifest manifest = incremental ? loadManifest() : null;
+        List<Path> changedPaths = manifest != null ? filterPaths(foundPaths, (Path path) -> !manifest.isUnchanged(path)) : foundPaths;
+        PropertyFileCache fileCache = new PropertyFileCache(metrics(), changedPaths);
+        AsyncEncryptor asyncEncryptor = changedPaths.isEmpty() ? null : startEncryptorResolution(matchingPaths, fileCache);
+        MarkerPrefilter markerPrefilter = createMarkerPrefilter();
+        List<Path> markedPaths;
+        int encryptedLinesCount;
         try {
-            Files.walkFileTree(rootPath, new FileVisitor<Path>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    Objects.requireNonNull(dir);
-                    Objects.requireNonNull(attrs);
-                    if (EXCLUDED_DIRECTORIES.contains(dir.getFileName().toString())) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    return FileVisitResult.CONTINUE;
+            markedPaths = markerPrefilter != null
+                    ? filterPaths(changedPaths, (Path path) -> containsMarker(fileCache.get(path), markerPrefilter))
+                    : changedPaths;
+            evictUnmarked(fileCache, changedPaths, markedPaths);
+            if (markedPaths.isEmpty()) {
+                encryptedLinesCount = 0;
+            } else if (useWorkers()) {
+                encryptedLinesCount = processWithWorkers(markedPaths, asyncEncryptor, fileCache, manifest);
+            } else if (parallel) {
+                encryptedLinesCount = mapPaths(markedPaths, (Path matching) -> processFile(asyncEncryptor, fileCache, matching, manifest))
+                        .mapToInt(Integer::intValue)
+                        .sum();
+            } else {
+                encryptedLinesCount = processQueued(markedPaths, asyncEncryptor, fileCache, manifest);
+            }
+        } finally {
+            if (asyncEncryptor != null && !asyncEncryptor.isReady()) {
+                asyncEncryptor.abandon();
+            }
+        }
+        if (manifest != null) {
+            Set<Path> markedPathSet = new HashSet<>(markedPaths);
+            for (Path unmarked : changedPaths) {
+                if (!markedPathSet.contains(unmarked)) {
+                    manifest.record(unmarked);
                 }
+            }
+        }
+        afterFilesProcessed();
+        if (manifest != null) {
+            manifest.save();
+        }
+        logProcessedStatus(foundPaths, changedPaths, changedPaths.size() - markedPaths.size(), encryptedLinesCount);
+        reportMetrics(foundPaths, changedPaths, markedPaths, encryptedLinesCount);
+    }
 
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    Objects.requireNonNull(file);
-                    Objects.requireNonNull(attrs);
-                    if (attrs.isRegularFile()
-                        && PROPERTIES_PATTERN.matcher(file.getFileName().toString()).matches()
-                        && (fileFilterPattern == null || file.getFileName().toString().matches(fileFilterPattern))) {
-                        propertyPaths.add(file);
-                    }
-                    return FileVisitResult.CONTINUE;
+    /**
+     * Watches the directories of the discovered files and processes the changed ones until the build is cancelled
+     * or {@link #stopWatching()} is called. The encryptor of the first run is kept, so a change only costs reading
+     * and rewriting the changed files, unless the {@code jasypt.encryptor.*} keys of a changed file differ from the
+     * ones it was created with. New files trigger a new discovery, to apply the include and exclude rules. A failed
+     * run is logged and watching goes on.
+     */
+    private void watchPropertyFiles() throws IOException {
+        try (PropertyFileWatcher watcher = PropertyFileWatcher.create(watchDebounceMillis)) {
+            fileWatcher = watcher;
+            List<Path> watchedPaths = discoverPropertyPaths();
+            watcher.watch(watchedPaths);
+            getLogger().lifecycle("Watching {} files for changes", watchedPaths.size());
+            afterWatchStarted(watchedPaths);
+            Set<Path> changes;
+            while (fileWatcher != null && (changes = watcher.poll()) != null) {
+                boolean rediscovered = hasNewPropertyFile(watchedPaths, changes);
+                if (rediscovered) {
+                    discoveredPaths = null;
+                    watchedPaths = discoverPropertyPaths();
+                    watcher.watch(watchedPaths);
                 }
-
-                @Override
-                public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                    Objects.requireNonNull(file);
-                    getLogger().error(Marker.ANY_MARKER, exc);
-                    return FileVisitResult.CONTINUE;
+                List<Path> matchingPaths = watchedPaths;
+                List<Path> changedPaths = selectChangedPaths(matchingPaths, changes);
+                if (changedPaths.isEmpty()) {
+                    afterWatchedChanges(changedPaths);
+                    continue;
                 }
-
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-                    Objects.requireNonNull(dir);
-                    return FileVisitResult.CONTINUE;
+                if (hasConfigChange(changedPaths)) {
+                    getLogger().lifecycle("Encryptor configuration has changed, the encryptor is initialized again");
+                    resetEncryptor();
                 }
+                metrics().reset();
+                if (rediscovered) {
+                    metrics().add(TaskMetrics.Phase.DISCOVERY, discoveryNanos);
+                }
+                try {
+                    runPipeline(() -> processPropertyFiles(matchingPaths, changedPaths));
+                } catch (GradleException e) {
+                    getLogger().error(e.getMessage(), e.getCause());
+                } catch (IOException e) {
+                    getLogger().error(Marker.ANY_MARKER, e);
+                } catch (UncheckedIOException e) {
+                    getLogger().error(Marker.ANY_MARKER, e.getCause());
+                }
+                afterWatchedChanges(changedPaths);
+            }
+        } finally {
+            fileWatcher = null;
+        }
+    }
+
+    /**
+     * @return {@code true} when the encryptor configuration of a changed file differs from the last resolution
+     */
+    private boolean hasConfigChange(List<Path> changedPaths) throws IOException {
+        for (Path changed : changedPaths) {
+            Properties fileProperties = new Properties();
+            formatHandler(changed).scanConfig(PropertyFileSource.read(changed), fileProperties);
+            if (!fileProperties.equals(fileConfigs.getOrDefault(PropertyFileWatcher.normalize(changed), new Properties()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasNewPropertyFile(List<Path> watchedPaths, Set<Path> changes) {
+        Set<Path> watchedFiles = watchedPaths.stream()
+                .map(PropertyFileWatcher::normalize)
+                .collect(Collectors.toSet());
+        return changes.stream()
+                .anyMatch((Path change) -> !watchedFiles.contains(change) && !Files.isDirectory(change)
+                        && FileFormats.find(getFormatHandlers(), change.getFileName().toString()) != null);
+    }
+
+    /**
+     * @return watched files that have changed, or that are in a directory whose events have been lost
+     */
+    private static List<Path> selectChangedPaths(List<Path> watchedPaths, Set<Path> changes) {
+        return watchedPaths.stream()
+                .filter((Path path) -> {
+                    Path file = PropertyFileWatcher.normalize(path);
+                    return changes.contains(file) || changes.contains(file.getParent());
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ends watch mode after the current run, can be called from any thread
+     */
+    public void stopWatching() {
+        PropertyFileWatcher watcher = fileWatcher;
+        fileWatcher = null;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                getLogger().debug("Failed to close the file watcher", e);
+            }
+        }
+    }
+
+    private boolean containsMarker(PropertyFileSource source, MarkerPrefilter markerPrefilter) throws IOException {
+        long matchStart = System.nanoTime();
+        boolean marked = source.containsMarker(markerPrefilter);
+        metrics().record(TaskMetrics.Phase.MATCH, source.getPath(), matchStart);
+        return marked;
+    }
+
+    /**
+     * Writes the JSON performance report and logs its summary
+     */
+    private void reportMetrics(List<Path> matchingPaths, List<Path> changedPaths, List<Path> markedPaths, int processedValuesCount) throws IOException {
+        TaskMetrics metrics = metrics();
+        metrics.stop();
+        metrics.count("filesFound", matchingPaths.size());
+        metrics.count("filesSkippedUnchanged", matchingPaths.size() - changedPaths.size());
+        metrics.count("filesSkippedWithoutValues", changedPaths.size() - markedPaths.size());
+        metrics.count("filesProcessed", markedPaths.size());
+        metrics.count("valuesProcessed", processedValuesCount);
+        metrics.count("parallelism", parallel ? getParallelism() : 1);
+        File reportFile = getReportFile();
+        metrics.writeJsonReport(reportFile.toPath(), getName(), rootPath(), processedValuesCount);
+        getLogger().lifecycle(metrics.summary(processedValuesCount));
+        getLogger().info("Performance report: {}", reportFile);
+    }
+
+    /**
+     * Submits one work unit per file and waits for all of them. Gradle schedules the units on its shared workers,
+     * so they run next to the work of other tasks and subprojects within the {@code --max-workers} limit. The units
+     * read and write the files themselves, with the encryptors initialized here before submitting and shared through
+     * the {@link com.github.jasypt.encrypt.tasks.EncryptorService}. Their results are applied on the task thread.
+     */
+    private int processWithWorkers(List<Path> paths, AsyncEncryptor asyncEncryptor, PropertyFileCache fileCache, ProcessedFilesManifest manifest) throws IOException {
+        asyncEncryptor.get();
+        WorkQueue workQueue = getWorkerExecutor().noIsolation();
+        Path resultDirectory = Files.createTempDirectory(getTemporaryDir().toPath(), "results");
+        List<Path> resultFiles = new ArrayList<>(paths.size());
+        getLogger().info("Submitting {} files to Gradle workers", paths.size());
+        for (Path path : paths) {
+            fileCache.evict(path); // work units read the file themselves
+            Path resultFile = resultDirectory.resolve(resultFiles.size() + ".properties");
+            resultFiles.add(resultFile);
+            workQueue.submit(FileTransformAction.class, (FileTransformAction.Parameters parameters) -> {
+                parameters.getPropertyFile().set(path.toFile());
+                parameters.getResultFile().set(resultFile.toFile());
+                configureWorkUnit(parameters);
             });
+        }
+        try {
+            workQueue.await();
+            int processedValuesCount = 0;
+            for (int i = 0; i < paths.size(); i++) {
+                processedValuesCount += applyWorkResult(paths.get(i), FileTransformAction.readResult(resultFiles.get(i)));
+                completeFile(fileCache, paths.get(i), manifest);
+            }
+            return processedValuesCount;
+        } catch (WorkerExecutionException e) {
+            throw unwrapWorkerFailure(e);
+        } finally {
+            for (Path resultFile : resultFiles) {
+                Files.deleteIfExists(resultFile);
+            }
+            Files.deleteIfExists(resultDirectory);
+        }
+    }
 
-        } catch (IOException e) {
-            getLogger().error(Marker.ANY_MARKER, e);
+    private void configureWorkUnit(FileTransformAction.Parameters parameters) {
+        parameters.getOperation().set(valueOperation());
+        parameters.getEncryptorService().set(getEncryptorService());
+        parameters.getEncryptorKey().set(encryptorKey());
+        parameters.getFileFormats().set(fileFormats);
+        parameters.getValueExtractPattern().set(valueExtractPattern);
+        parameters.getValueMarker().set(getValueMarker());
+        parameters.getPropertyPrefix().set(getPropertyPrefix());
+        parameters.getPropertySuffix().set(getPropertySuffix());
+        Properties rewrittenConfig = getRewrittenConfig();
+        if (rewrittenConfig != null) {
+            for (String key : rewrittenConfig.stringPropertyNames()) {
+                parameters.getRewrittenConfig().put(key, rewrittenConfig.getProperty(key));
+            }
         }
-        return propertyPaths;
+        configureWorkParameters(parameters);
     }
 
-    private Pattern getValueExtractorPattern() {
-        if (valueExtractorPattern == null) {
-            valueExtractorPattern = getDefaultExtractPattern();
+    /**
+     * Records the metrics of a work unit and hands its collected value failures to {@link #onValueFailure}
+     *
+     * @return number of processed values
+     */
+    private int applyWorkResult(Path path, Properties result) throws IOException {
+        int valueCount = Integer.parseInt(result.getProperty(FileTransformAction.VALUES_KEY));
+        TaskMetrics.FileTiming fileTiming = metrics().file(path);
+        fileTiming.setBytes(Long.parseLong(result.getProperty(FileTransformAction.BYTES_KEY)));
+        fileTiming.setValues(valueCount);
+        for (TaskMetrics.Phase phase : TaskMetrics.Phase.values()) {
+            long phaseNanos = Long.parseLong(result.getProperty(FileTransformAction.PHASE_KEY_PREFIX + phase.name(), "0"));
+            if (phaseNanos > 0) {
+                metrics().add(phase, path, phaseNanos);
+            }
         }
-        return valueExtractorPattern;
+        PropertyFileWatcher watcher = fileWatcher;
+        if (watcher != null && Boolean.parseBoolean(result.getProperty(FileTransformAction.REWRITTEN_KEY))) {
+            watcher.recordOwnWrite(path.toAbsolutePath(), path);
+        }
+        for (int i = 0; !shouldStopProcessing(); i++) {
+            String failureKey = FileTransformAction.FAILURE_KEY_PREFIX + i;
+            String lineNumber = result.getProperty(failureKey + ".line");
+            if (lineNumber == null) {
+                break;
+            }
+            String message = result.getProperty(failureKey + ".message");
+            onValueFailure(path, Integer.parseInt(lineNumber), message != null ? new GradleException(message) : new GradleException());
+        }
+        return valueCount;
     }
 
-    private PBEStringEncryptor resolvePropertyEncryptor(List<Path> matchingPaths) {
-        if (matchingPaths.isEmpty()) {
-            return initEncryptor(JasyptConfig.DEFAULT_JASYPT_CONFIG);
+    /**
+     * @return the exception a work unit has failed with, so it's reported the same way as in process. Gradle wraps
+     * it once into an exception naming the action.
+     */
+    private static RuntimeException unwrapWorkerFailure(WorkerExecutionException e) throws IOException {
+        Throwable failure = e.getCauses().isEmpty() ? e : e.getCauses().get(0);
+        if (failure.getCause() != null) {
+            failure = failure.getCause();
         }
-        String[] filePaths = matchingPaths.stream()
-                .map(Path::toString)
-                .toArray(String[]::new);
-        Properties mergedProperties = new MultiFileReader()
-                .read(filePaths).stream()
-                .collect(Properties::new, Map::putAll, Map::putAll);
-        JasyptConfig config = new PropertiesMapper()
-                .data(mergedProperties)
-                .map(JasyptConfig.class);
-        return initEncryptor(config);
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        return failure instanceof RuntimeException ? (RuntimeException) failure : e;
     }
 
-    private void logProcessedStatus(List<Path> matchingPaths, AtomicInteger encryptedLinesCount) {
-        System.out.println("No of files found: " + matchingPaths.size());
-        System.out.println("No of values changed: " + encryptedLinesCount.get());
-        if (!matchingPaths.isEmpty()) {
-            String filesProcessed = matchingPaths.stream()
-                    .map((Path path) -> path.getFileName().toString())
-                    .map((String fileName) -> "[" + fileName + "]")
-                    .collect(Collectors.joining("\r\n"));
-            System.out.println("Files processed:\r\n" + filesProcessed);
-        }
-    }
-
-    private FilePropertiesHolder handlePropertiesFile(PBEStringEncryptor encryptor, List<String> allLines) {
-        List<String> resultFileLines = new ArrayList<>(allLines.size());
-        AtomicInteger encryptedLinesCount = new AtomicInteger();
-        for (int i = 0; i < allLines.size(); i++) {
-            String line = allLines.get(i);
-
-            if (isPropertiesMultiline(line)) {
-                int indentationLevel = getLineIndentationLevel(allLines.get(i + 1));
-                List<String> multilineList = propertiesMultilineToList(allLines, i);
-                StringBuffer multilineAsSingleLine = convertMultilinesToSingleLine(multilineList);
-                int lineLength = getMaxLineLength(multilineList);
-
-                Matcher matcher = getValueExtractorPattern().matcher(multilineAsSingleLine);
-                if (matcher.find()) {
-                    resultFileLines.add(line);
-                    String extractedValue = matcher.group(1);
-                    String encryptedValue = getPropertyPrefix() + process(encryptor, extractedValue) + getPropertySuffix();
-
-                    List<String> encryptedLineAsMultilineList = splitLongStringToMultiline(encryptedValue, lineLength);
-                    List<String> encryptedLinesWithPadding = formatPropertyMultiline(encryptedLineAsMultilineList, indentationLevel);
-                    resultFileLines.addAll(encryptedLinesWithPadding);
-                    encryptedLinesCount.incrementAndGet();
-                    i += multilineList.size();
-                    continue;
+    /**
+     * Files are handed to Gradle workers only when running in a build, work can't be submitted outside of a task
+     * execution. Tasks with their own value processing and encryptors that are not shared run in process.
+     */
+    private boolean useWorkers() {
+        return !inProcess && runsAsTaskAction() && valueOperation() != null && getEncryptorService().isPresent();
+    }
+
+    /**
+     * Runs the pipeline in a dedicated pool. Failures are handed back as the original exceptions,
+     * since the copies rethrown by {@link ForkJoinTask#get()} lose their messages.
+     */
+    private void runInFilePool(PathPipeline pipeline) throws IOException {
+        ForkJoinPool filePool = new ForkJoinPool(getParallelism());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            filePool.submit(() -> {
+                try {
+                    pipeline.run();
+                } catch (IOException | RuntimeException e) {
+                    failure.set(e);
                 }
+            }).get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("File processing has been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("File processing failed", e.getCause());
+        } finally {
+            filePool.shutdown();
+        }
+        Exception pipelineFailure = failure.get();
+        if (pipelineFailure instanceof IOException) {
+            throw (IOException) pipelineFailure;
+        }
+        if (pipelineFailure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) pipelineFailure).getCause();
+        }
+        if (pipelineFailure != null) {
+            throw (RuntimeException) pipelineFailure;
+        }
+    }
+
+    /**
+     * Maps paths in parallel when parallel mode is on. Called from the file pool, so parallel streams
+     * are executed by the pool threads instead of the common pool.
+     */
+    private <T> Stream<T> mapPaths(List<Path> paths, PathFunction<T> function) {
+        Stream<Path> pathStream = parallel ? paths.parallelStream() : paths.stream();
+        return pathStream.map((Path path) -> {
+            try {
+                return function.apply(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private List<Path> filterPaths(List<Path> paths, PathFunction<Boolean> predicate) {
+        List<Boolean> matches = mapPaths(paths, predicate).collect(Collectors.toList());
+        List<Path> filteredPaths = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            if (matches.get(i)) {
+                filteredPaths.add(paths.get(i));
             }
-            handleSingleLine(encryptor, encryptedLinesCount, resultFileLines, line);
         }
+        return filteredPaths;
+    }
 
-        return new FilePropertiesHolder(resultFileLines, encryptedLinesCount);
+    private MarkerPrefilter createMarkerPrefilter() {
+        if (valueExtractPattern.isPresent()) {
+            return null; // custom pattern, marker is unknown
+        }
+        Properties rewrittenConfig = getRewrittenConfig();
+        if (rewrittenConfig != null && !rewrittenConfig.isEmpty()) {
+            return null; // files with config keys but without values are rewritten as well
+        }
+        return new MarkerPrefilter(getValueMarker());
     }
 
-    private List<String> propertiesMultilineToList(List<String> allLines, int lineIndex) {
-        List<String> multilineList = new ArrayList<>();
-        for (int multilineIndex = lineIndex + 1; multilineIndex < allLines.size(); multilineIndex++) {
-            String multiline = allLines.get(multilineIndex).trim();
-            if (!multiline.endsWith("\\")) {
-                multilineList.add(multiline);
+    private ProcessedFilesManifest loadManifest() throws IOException {
+        String settingsFingerprint = ProcessedFilesManifest.sha256Hex(
+                (getValueExtractPatternSource() + "\n" + getPropertyPrefix() + "\n" + getPropertySuffix()).getBytes(StandardCharsets.UTF_8));
+        return ProcessedFilesManifest.load(getManifestFile().toPath(), rootPath(), settingsFingerprint);
+    }
+
+    /**
+     * Values are matched before the encryptor is needed, so matching overlaps with its initialization
+     */
+    private int processFile(AsyncEncryptor asyncEncryptor, PropertyFileCache fileCache, Path matching, ProcessedFilesManifest manifest) throws IOException {
+        if (shouldStopProcessing()) {
+            return 0;
+        }
+        PropertyFileSource source = fileCache.get(matching);
+        List<ValueSite> valueSites = getTransformer().match(source);
+        int processedValuesCount = valueSites.isEmpty() ? 0 : getTransformer().transform(asyncEncryptor.get(), source, valueSites);
+        completeFile(fileCache, matching, manifest);
+        return processedValuesCount;
+    }
+
+    /**
+     * Matches files one by one while the encryptor is initialized. Matched files wait in a queue, which is drained
+     * as soon as the encryptor is ready, and after that every file is transformed right after it has been matched.
+     */
+    private int processQueued(List<Path> paths, AsyncEncryptor asyncEncryptor, PropertyFileCache fileCache, ProcessedFilesManifest manifest) throws IOException {
+        Deque<Map.Entry<PropertyFileSource, List<ValueSite>>> matchedFiles = new ArrayDeque<>();
+        int processedValuesCount = 0;
+        for (Path path : paths) {
+            if (shouldStopProcessing()) {
                 break;
             }
-            multilineList.add(multiline.substring(0, multiline.length() - 1));
-        }
-        
-        return multilineList;
-    }
-
-    private FilePropertiesHolder handleYamlFile(PBEStringEncryptor encryptor, List<String> allLines) {
-        List<String> resultFileLines = new ArrayList<>(allLines.size());
-        AtomicInteger encryptedLinesCount = new AtomicInteger();
-        for (int i = 0; i < allLines.size(); i++) {
-            String line = allLines.get(i);
-
-            if (isYamlMultiline(line)) {
-                int indentationLevel = getLineIndentationLevel(allLines.get(i + 1));
-                List<String> multilineList = yamlMultilineToList(allLines, i, indentationLevel);
-                StringBuffer multilineAsSingleLine = convertMultilinesToSingleLine(multilineList);
-                int lineLength = getMaxLineLength(multilineList);
-
-                Matcher matcher = getValueExtractorPattern().matcher(multilineAsSingleLine);
-                if (matcher.find()) {
-                    resultFileLines.add(line);
-                    String extractedValue = matcher.group(1);
-                    String encryptedValue = getPropertyPrefix() + process(encryptor, extractedValue) + getPropertySuffix();
-
-                    List<String> encryptedLineAsMultilineList = splitLongStringToMultiline(encryptedValue, lineLength);
-                    List<String> encryptedLinesWithPadding = formatYamlMultiline(encryptedLineAsMultilineList, indentationLevel);
-                    resultFileLines.addAll(encryptedLinesWithPadding);
-                    encryptedLinesCount.incrementAndGet();
-                    i += multilineList.size();
-                    continue;
-                }
+            PropertyFileSource source = fileCache.get(path);
+            matchedFiles.add(new AbstractMap.SimpleImmutableEntry<>(source, getTransformer().match(source)));
+            if (asyncEncryptor.isReady()) {
+                processedValuesCount += drainMatchedFiles(matchedFiles, asyncEncryptor, fileCache, manifest);
             }
-            handleSingleLine(encryptor, encryptedLinesCount, resultFileLines, line);
         }
+        return processedValuesCount + drainMatchedFiles(matchedFiles, asyncEncryptor, fileCache, manifest);
+    }
 
-        return new FilePropertiesHolder(resultFileLines, encryptedLinesCount);
+    private int drainMatchedFiles(Deque<Map.Entry<PropertyFileSource, List<ValueSite>>> matchedFiles, AsyncEncryptor asyncEncryptor,
+                                  PropertyFileCache fileCache, ProcessedFilesManifest manifest) throws IOException {
+        int processedValuesCount = 0;
+        while (!matchedFiles.isEmpty() && !shouldStopProcessing()) {
+            Map.Entry<PropertyFileSource, List<ValueSite>> matchedFile = matchedFiles.poll();
+            if (!matchedFile.getValue().isEmpty()) {
+                processedValuesCount += getTransformer().transform(asyncEncryptor.get(), matchedFile.getKey(), matchedFile.getValue());
+            }
+            completeFile(fileCache, matchedFile.getKey().getPath(), manifest);
+        }
+        return processedValuesCount;
     }
 
-    private void handleSingleLine(PBEStringEncryptor encryptor, AtomicInteger encryptedLinesCount, List<String> resultFileLines, String line) {
-        Matcher matcher = getValueExtractorPattern().matcher(line);
-        if (matcher.find()) {
-            String extractedValue = matcher.group(1);
-            String matchGroup = matcher.group();
-            String encryptedValue = getPropertyPrefix() + process(encryptor, extractedValue) + getPropertySuffix();
-            resultFileLines.add(line.replace(matchGroup, encryptedValue));
-            encryptedLinesCount.incrementAndGet();
-        } else {
-            resultFileLines.add(line);
+    private static void evictUnmarked(PropertyFileCache fileCache, List<Path> changedPaths, List<Path> markedPaths) {
+        if (markedPaths.size() == changedPaths.size()) {
+            return;
+        }
+        Set<Path> markedPathSet = new HashSet<>(markedPaths);
+        for (Path changed : changedPaths) {
+            if (!markedPathSet.contains(changed)) {
+                fileCache.evict(changed);
+            }
+        }
+    }
+
+    private void completeFile(PropertyFileCache fileCache, Path path, ProcessedFilesManifest manifest) throws IOException {
+        fileCache.evict(path);
+        if (manifest != null) {
+            manifest.record(path);
         }
     }
 
-    private List<String> yamlMultilineToList(List<String> allLines, int lineIndex, int indentationLevel) {
-        List<String> multilineList = new ArrayList<>();
-        for (int multilineIndex = lineIndex + 1; multilineIndex < allLines.size(); multilineIndex++) {
-            String multiline = allLines.get(multilineIndex);
-            int whitespaceCount = getLineIndentationLevel(multiline);
+    int transformFile(PBEStringEncryptor encryptor, PropertyFileSource source) throws IOException {
+        PropertyFileTransformer fileTransformer = getTransformer();
+        List<ValueSite> valueSites = fileTransformer.match(source);
+        return valueSites.isEmpty() ? 0 : fileTransformer.transform(encryptor, source, valueSites);
+    }
 
-            if (multiline.trim().isEmpty() || whitespaceCount != indentationLevel) {
-                break;
+    /**
+     * @return transformer for the settings of the current run, sites are split over the file pool only in process
+     */
+    private PropertyFileTransformer getTransformer() {
+        if (transformer == null) {
+            transformer = new PropertyFileTransformer(getFormatHandlers(), getValueMatcher(), getPropertyPrefix(), getPropertySuffix(),
+                    isReadOnly(), getRewrittenConfig(), parallel && !useWorkers(), this::process, this::onValueFailure,
+                    this::shouldStopProcessing, metrics(), (Path file, Path writtenContent) -> {
+                        PropertyFileWatcher watcher = fileWatcher;
+                        if (watcher != null) {
+                            watcher.recordOwnWrite(file, writtenContent);
+                        }
+                    });
+        }
+        return transformer;
+    }
+
+    @Option(option = "value-extract-pattern", description = "Regular expression to extract the plain text. Defaults to ENCRYPT((.*))")
+    public void setValueRegex(String valueRegex) {
+        if (valueRegex != null && !valueRegex.trim().isEmpty()) {
+            Pattern.compile(valueRegex); // fail fast on invalid expressions
+            this.valueExtractPattern.set(valueRegex);
+            this.valueExtractorPattern = null;
+            this.valueMatcher = null;
+        }
+    }
+
+    @Option(option = "file-filter-pattern", description = "Include only these files")
+    public void setFileFilterPattern(String fileFilterPattern) {
+        this.fileFilterPattern.set(fileFilterPattern);
+    }
+
+    @Option(option = "source-dir", description = "Directory glob relative to the root directory to search files in, e.g. src/*/resources. Defaults to the whole root directory")
+    public void setSourceDirs(List<String> sourceDirs) {
+        this.sourceDirs.set(sourceDirs);
+    }
+
+    @Option(option = "include", description = "Include only files matching this glob, relative to the root directory")
+    public void setIncludes(List<String> includes) {
+        this.includes.set(includes);
+    }
+
+    @Option(option = "exclude", description = "Exclude files and directories matching this glob, relative to the root directory")
+    public void setExcludes(List<String> excludes) {
+        this.excludes.set(excludes);
+    }
+
+    @Option(option = "file-format", description = "Process files of this format: properties, yaml, env, json or xml. Defaults to properties and yaml")
+    public void setFileFormats(List<String> fileFormats) {
+        try {
+            FileFormats.select(fileFormats);
+        } catch (IllegalArgumentException e) {
+            throw new OptionValidationException(e.getMessage());
+        }
+        this.fileFormats.set(fileFormats);
+    }
+
+    @Input
+    public ListProperty<String> getFileFormats() {
+        return fileFormats;
+    }
+
+    /**
+     * Directory the property files are searched in, defaults to the project directory
+     */
+    @Internal
+    public DirectoryProperty getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Directories skipped by the search, set by the plugin to the directories of the subprojects that apply it,
+     * which are processed by their own tasks. Empty for the aggregate tasks of the root project.
+     */
+    @Internal
+    public ConfigurableFileCollection getNestedProjectDirectories() {
+        return nestedProjectDirectories;
+    }
+
+    @Option(option = "respect-gitignore", description = "Skip files and directories ignored by .gitignore")
+    public void setRespectGitIgnore(boolean respectGitIgnore) {
+        this.respectGitIgnore = respectGitIgnore;
+    }
+
+    @Input
+    public ListProperty<String> getSourceDirs() {
+        return sourceDirs;
+    }
+
+    @Input
+    public ListProperty<String> getIncludes() {
+        return includes;
+    }
+
+    @Input
+    public ListProperty<String> getExcludes() {
+        return excludes;
+    }
+
+    @Input
+    public boolean isRespectGitIgnore() {
+        return respectGitIgnore;
+    }
+
+    @Option(option = "parallel-files", description = "Process matched files concurrently")
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Option(option = "parallelism", description = "Number of worker threads in parallel mode. Defaults to the available processors count")
+    public void setParallelism(String parallelism) {
+        if (parallelism != null && !parallelism.trim().isEmpty()) {
+            int threadCount = Integer.parseInt(parallelism.trim());
+            if (threadCount < 1) {
+                throw new OptionValidationException("--parallelism should be greater than zero");
             }
-            String trimmedLine = multiline.trim();
-            multilineList.add(trimmedLine);
+            this.parallelism = threadCount;
+        }
+    }
+
+    @Option(option = "in-process", description = "Process files on the task thread instead of submitting them to Gradle workers")
+    public void setInProcess(boolean inProcess) {
+        this.inProcess = inProcess;
+    }
+
+    @Internal
+    public boolean isInProcess() {
+        return inProcess;
+    }
+
+    @Option(option = "watch", description = "Keep running after the first run and process the files that change, until the build is cancelled")
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    @Internal
+    public boolean isWatch() {
+        return watch;
+    }
+
+    @Option(option = "watch-debounce", description = "Milliseconds without file changes before the changed files are processed in watch mode. Defaults to " + DEFAULT_WATCH_DEBOUNCE_MILLIS)
+    public void setWatchDebounceMillis(String watchDebounceMillis) {
+        try {
+            this.watchDebounceMillis = Integer.parseInt(watchDebounceMillis.trim());
+        } catch (NumberFormatException e) {
+            throw new OptionValidationException("--watch-debounce should be a number");
         }
-        
-        return multilineList;
+        if (this.watchDebounceMillis < 0) {
+            throw new OptionValidationException("--watch-debounce can't be negative");
+        }
+    }
+
+    @Internal
+    public int getWatchDebounceMillis() {
+        return watchDebounceMillis;
     }
 
-    private StringBuffer convertMultilinesToSingleLine(List<String> multilineList) {
-        StringBuffer multilineAsSingleLine = new StringBuffer();
-        multilineList.forEach(multilineAsSingleLine::append);
-        return multilineAsSingleLine;
+    @Option(option = "incremental", description = "Skip files that have not changed since they were last processed")
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
     }
 
-    private boolean isYamlMultiline(String line) {
-        return line.trim().endsWith("|");
+    @Input
+    public boolean isIncremental() {
+        return incremental;
     }
 
-    private boolean isPropertiesMultiline(String line) {
-        return line.trim().endsWith("\\");
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getPropertyFiles() {
+        return propertyFiles;
     }
 
-    private String getFileExtensionByName(String fileName) {
-        return Optional.ofNullable(fileName)
-                .filter((String name) -> name.contains("."))
-                .map((String name) ->  name.substring(fileName.lastIndexOf(".") + 1))
-                .orElse(null);
+    @Input
+    @org.gradle.api.tasks.Optional
+    public Property<String> getFileFilterPattern() {
+        return fileFilterPattern;
     }
 
-    private int getMaxLineLength(List<String> multilineList) {
-        return multilineList.stream()
-                .mapToInt(String::length)
-                .max()
-                .orElse(0);
+    @Input
+    public String getValueExtractPatternSource() {
+        return getValueExtractorPattern().pattern();
     }
 
-    private int getLineIndentationLevel(String line) {
-        int indentationLength = 0;
-        for (Character lineChar : line.toCharArray()) {
-            if (!Character.isWhitespace(lineChar)) {
-                break;
+    @OutputFile
+    public File getManifestFile() {
+        return manifestFile.get().getAsFile();
+    }
+
+    @Internal
+    public File getReportFile() {
+        return reportFile.get().getAsFile();
+    }
+
+    @Internal
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    @Internal
+    public int getParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Input tree of the property files: files of the selected formats below the root or source directories, without
+     * the directories the search never enters. It's a tree rather than the discovered paths, so files created after
+     * the configuration has been cached make the task out of date. Include/exclude globs, the file filter pattern
+     * and {@code .gitignore} are not applied, the tree may contain a few more files than the search finds.
+     */
+    private FileTree createPropertyFileTree() {
+        List<String> fileNamePatterns = getFormatHandlers().stream()
+                .flatMap((FileFormatHandler handler) -> handler.getFileNamePatterns().stream())
+                .collect(Collectors.toList());
+        List<String> directoryPatterns = sourceDirs.get().isEmpty()
+                ? Collections.singletonList("**/")
+                : sourceDirs.get().stream()
+                        .map((String sourceDir) -> sourceDir.replace('\\', '/').replaceAll("/+$", "") + "/**/")
+                        .collect(Collectors.toList());
+        List<String> skippedDirectoryPatterns = nestedProjectDirectories.getFiles().stream()
+                .map((File directory) -> rootPath().relativize(directory.toPath()))
+                .filter((Path relativePath) -> !relativePath.startsWith(".."))
+                .map((Path relativePath) -> relativePath.toString().replace(File.separatorChar, '/') + "/**")
+                .collect(Collectors.toList());
+        return rootDirectory.get().getAsFileTree().matching((PatternFilterable patterns) -> {
+            for (String directoryPattern : directoryPatterns) {
+                for (String fileNamePattern : fileNamePatterns) {
+                    patterns.include(directoryPattern + fileNamePattern);
+                }
+            }
+            for (String excludedDirectory : PropertyFileWalker.EXCLUDED_DIRECTORIES) {
+                patterns.exclude("**/" + excludedDirectory + "/**");
+            }
+            patterns.exclude(skippedDirectoryPatterns);
+        });
+    }
+
+    /**
+     * The walk result is reused between runs, as long as discovery settings are the same
+     */
+    private List<Path> discoverPropertyPaths() {
+        List<Object> settings = Arrays.asList(rootPath(), sourceDirs.get(), includes.get(), excludes.get(),
+                nestedProjectDirectories.getFiles(), fileFilterPattern.getOrNull(), fileFormats.get(), respectGitIgnore);
+        if (discoveredPaths == null || !settings.equals(discoverySettings)) {
+            discoveredPaths = listApplicationPropertyPaths();
+            discoverySettings = settings;
+        }
+        return discoveredPaths;
+    }
+
+    Path rootPath() {
+        return rootDirectory.get().getAsFile().toPath();
+    }
+
+    private List<Path> listApplicationPropertyPaths() {
+        long discoveryStart = System.nanoTime();
+        try {
+            return walkPropertyPaths();
+        } finally {
+            discoveryNanos = System.nanoTime() - discoveryStart;
+        }
+    }
+
+    private List<Path> walkPropertyPaths() {
+        List<Path> skippedDirectories = nestedProjectDirectories.getFiles().stream()
+                .map(File::toPath)
+                .collect(Collectors.toList());
+        PropertyFileWalker fileWalker = new PropertyFileWalker(rootPath(), sourceDirs.get(), includes.get(), excludes.get(),
+                skippedDirectories, fileFilterPattern.getOrNull(), getFormatHandlers(), respectGitIgnore, parallel, getParallelism(),
+                (IOException e) -> getLogger().error(Marker.ANY_MARKER, e));
+        return fileWalker.walk().stream()
+                .filter(this::acceptsPropertyFile)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return matcher for the built-in value marker, or for the custom extract pattern when one is set
+     */
+    private ValueMatcher getValueMatcher() {
+        if (valueMatcher == null) {
+            valueMatcher = valueExtractPattern.isPresent()
+                    ? ValueMatcher.forPattern(getValueExtractorPattern())
+                    : ValueMatcher.forMarker(getValueMarker());
+        }
+        return valueMatcher;
+    }
+
+    /**
+     * @throws GradleException for an unknown format, which can be set from the build script without validation
+     */
+    private List<FileFormatHandler> getFormatHandlers() {
+        List<String> names = fileFormats.get();
+        if (formatHandlers == null || !names.equals(formatHandlerNames)) {
+            try {
+                formatHandlers = FileFormats.select(names);
+                formatHandlerNames = names;
+            } catch (IllegalArgumentException e) {
+                throw new GradleException(e.getMessage(), e);
             }
-            int whitespaceLength = lineChar == '\t' ? TAB_WHITESPACE_INDENTATION_COUNT : SINGLE_WHITESPACE_INDENTATION_COUNT;
-            indentationLength += whitespaceLength;
         }
-        
-        return indentationLength;
+        return formatHandlers;
     }
 
-    private List<String> splitLongStringToMultiline(String encryptedLine, int lineLength) {
-        List<String> result = new ArrayList<>();
-        for (int i = 0; i < encryptedLine.length(); i += lineLength) {
-            int substringLength = Math.min(encryptedLine.length(), i + lineLength);
-            result.add(encryptedLine.substring(i, substringLength));
+    private FileFormatHandler formatHandler(Path file) {
+        FileFormatHandler handler = FileFormats.find(getFormatHandlers(), file.getFileName().toString());
+        if (handler == null) {
+            throw new GradleException("Unsupported file format: " + file);
         }
-        return result;
+        return handler;
     }
 
-    private List<String> formatYamlMultiline(List<String> multilineList, int indentationLevel) {
-        return multilineList.stream()
-                .map((String line) -> {
-                    String whitespacePadding = String.join("", Collections.nCopies(indentationLevel, " "));
-                    return whitespacePadding.concat(line);
-                }).collect(Collectors.toList());
+    private Pattern getValueExtractorPattern() {
+        if (valueExtractorPattern == null) {
+            valueExtractorPattern = valueExtractPattern.isPresent() ? Pattern.compile(valueExtractPattern.get()) : getDefaultExtractPattern();
+        }
+        return valueExtractorPattern;
     }
 
-    private List<String> formatPropertyMultiline(List<String> multilineList, int indentationLevel) {
-        List<String> resultList = new ArrayList<>(multilineList.size());
-        for (int i = 0; i < multilineList.size(); i++) {
-            String line = multilineList.get(i);
-            String whitespacePadding = String.join("", Collections.nCopies(indentationLevel, " "));
-            if (i == multilineList.size() - 1) {
-                resultList.add(whitespacePadding.concat(line));
-                break;
+    /**
+     * Starts config resolution and encryptor initialization in the background. The encryptor is used once right away,
+     * so key derivation setup and salt generator seeding happen before the first value is processed.
+     */
+    private AsyncEncryptor startEncryptorResolution(List<Path> matchingPaths, PropertyFileCache fileCache) {
+        // the first initialized encryptor is kept, so later runs of the same task, like in watch mode, skip the config
+        AsyncEncryptor.ConfigResolver configResolver = getEncryptor() != null
+                ? () -> JasyptConfig.DEFAULT_JASYPT_CONFIG
+                : () -> resolvePropertyConfig(matchingPaths, fileCache);
+        return AsyncEncryptor.start(configResolver, (JasyptConfig config) -> {
+            PBEStringEncryptor encryptor = initEncryptor(config);
+            try {
+                encryptor.encrypt("");
+            } catch (RuntimeException e) {
+                getLogger().debug("Encryptor warm-up failed, the error is reported when values are processed", e);
             }
+            return encryptor;
+        });
+    }
 
-            resultList.add(whitespacePadding.concat(line).concat("\\"));
+    /**
+     * Resolves encryptor config from the same cached file content that is later transformed. Files that are not
+     * processed, like unchanged ones, are read without caching. Keys found in later files override the ones found before.
+     */
+    private JasyptConfig resolvePropertyConfig(List<Path> matchingPaths, PropertyFileCache fileCache) throws IOException {
+        Properties mergedProperties = new Properties();
+        Map<Path, Properties> foundConfigs = new HashMap<>();
+        for (Path matching : matchingPaths) {
+            PropertyFileSource source = fileCache.get(matching);
+            long configStart = System.nanoTime();
+            Properties fileProperties = new Properties();
+            formatHandler(matching).scanConfig(source, fileProperties);
+            if (!fileProperties.isEmpty()) {
+                foundConfigs.put(PropertyFileWatcher.normalize(matching), fileProperties);
+                mergedProperties.putAll(fileProperties);
+            }
+            metrics().record(TaskMetrics.Phase.CONFIG, configStart);
         }
-        return resultList;
+        fileConfigs = foundConfigs;
+        JasyptConfig config = JasyptConfig.fromProperties(mergedProperties);
+        if (parallel) {
+            config.setPoolSize(String.valueOf(getParallelism()));
+        } else if (useWorkers()) {
+            config.setPoolSize(String.valueOf(Math.max(Integer.parseInt(config.getPoolSize()), maxWorkerCount)));
+        }
+        return config;
+    }
+
+    private void logProcessedStatus(List<Path> matchingPaths, List<Path> changedPaths, int unmarkedFilesCount, int encryptedLinesCount) {
+        getLogger().lifecycle("No of files found: {}", matchingPaths.size());
+        if (incremental) {
+            getLogger().lifecycle("No of unchanged files skipped: {}", matchingPaths.size() - changedPaths.size());
+        }
+        getLogger().lifecycle("No of files without values skipped: {}", unmarkedFilesCount);
+        getLogger().lifecycle("{}: {}", processedValuesLabel(), encryptedLinesCount);
+        if (!changedPaths.isEmpty() && getLogger().isInfoEnabled()) {
+            String filesProcessed = changedPaths.stream()
+                    .map((Path path) -> path.getFileName().toString())
+                    .map((String fileName) -> "[" + fileName + "]")
+                    .collect(Collectors.joining(System.lineSeparator()));
+            getLogger().info("Files processed:{}{}", System.lineSeparator(), filesProcessed);
+        }
+    }
+
+    boolean isYamlFile(Path file) {
+        return FileFormats.YAML.accepts(file.getFileName().toString());
     }
 }
@@ -0,0 +1,44 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * {@code .properties} files, with backslash continued multiline values
+ */
+final class PropertiesFormatHandler extends LineFormatHandler {
+
+    static final String NAME = "properties";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accepts(String fileName) {
+        return fileName.endsWith(".properties");
+    }
+
+    @Override
+    public List<String> getFileNamePatterns() {
+        return Collections.singletonList("*.properties");
+    }
+
+    @Override
+    protected LineTokenizer newTokenizer(ValueSpanTokenizer.Listener listener) {
+        return new ValueSpanTokenizer(false, listener);
+    }
+
+    @Override
+    public void scanConfig(PropertyFileSource source, Properties target) throws IOException {
+        JasyptConfigScanner.scan(source, false, target);
+    }
+
+    @Override
+    public List<ValueSite> collectConfigSites(PropertyFileSource source, Properties rewrittenConfig) throws IOException {
+        return JasyptConfigScanner.collectConfigSites(source, false, rewrittenConfig);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.tasks.TaskMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per task run cache of {@link PropertyFileSource}s, so that each file to process is read from disk only once.
+ * Only the files to process are cached, files read for the configuration only are not, and entries should be
+ * evicted as soon as a file has been rewritten or skipped, so memory use follows the work in progress.
+ */
+final class PropertyFileCache {
+
+    static final long MAX_CACHED_FILE_SIZE = 8 * 1024 * 1024;
+
+    private final Map<Path, PropertyFileSource> sources = new ConcurrentHashMap<>();
+    private final Set<Path> cachedPaths = ConcurrentHashMap.newKeySet();
+    private final TaskMetrics metrics;
+
+    /**
+     * @param cachedPaths files to process, other files are read without caching
+     */
+    PropertyFileCache(TaskMetrics metrics, Collection<Path> cachedPaths) {
+        this.metrics = metrics;
+        this.cachedPaths.addAll(cachedPaths);
+    }
+
+    PropertyFileSource get(Path path) throws IOException {
+        if (!cachedPaths.contains(path)) {
+            PropertyFileSource cachedSource = sources.get(path);
+            return cachedSource != null ? cachedSource : read(path);
+        }
+        PropertyFileSource source;
+        try {
+            source = sources.computeIfAbsent(path, (Path filePath) -> {
+                try {
+                    return read(filePath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!cachedPaths.contains(path)) {
+            sources.remove(path); // evicted while it was read
+        }
+        return source;
+    }
+
+    private PropertyFileSource read(Path path) throws IOException {
+        long readStart = System.nanoTime();
+        PropertyFileSource source = PropertyFileSource.read(path);
+        metrics.record(TaskMetrics.Phase.READ, path, readStart);
+        metrics.file(path).setBytes(source.getSize());
+        return source;
+    }
+
+    /**
+     * Drops the file, later reads of it are not cached
+     */
+    void evict(Path path) {
+        cachedPaths.remove(path);
+        sources.remove(path);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Content of a discovered file, read from disk once. Files up to {@link PropertyFileCache#MAX_CACHED_FILE_SIZE}
+ * keep their bytes in memory and every later pass (marker prefilter, config lookup, value collection and rewrite)
+ * reads from the same buffer. Larger files are streamed from disk on every pass to keep memory use constant.
+ * When a file is rewritten, its unchanged {@link ByteRanges} are copied from the buffer or transferred from the
+ * file channel, without decoding them.
+ */
+final class PropertyFileSource {
+
+    private final Path path;
+    private final long size;
+    private final byte[] content;
+
+    private PropertyFileSource(Path path, long size, byte[] content) {
+        this.path = path;
+        this.size = size;
+        this.content = content;
+    }
+
+    static PropertyFileSource read(Path path) throws IOException {
+        long size = Files.size(path);
+        byte[] content = size <= PropertyFileCache.MAX_CACHED_FILE_SIZE ? Files.readAllBytes(path) : null;
+        return new PropertyFileSource(path, content != null ? content.length : size, content);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    boolean containsMarker(MarkerPrefilter markerPrefilter) throws IOException {
+        if (content == null) {
+            return markerPrefilter.containsMarker(path);
+        }
+        return markerPrefilter.indexOf(content, content.length) >= 0;
+    }
+
+    InputStream openStream() throws IOException {
+        return content != null ? new ByteArrayInputStream(content) : Files.newInputStream(path);
+    }
+
+    BufferedReader openReader() throws IOException {
+        return new BufferedReader(new InputStreamReader(openStream(), StandardCharsets.UTF_8));
+    }
+
+    String readText() throws IOException {
+        return new String(content != null ? content : Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    boolean isValidUtf8() throws IOException {
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(content != null ? content : Files.readAllBytes(path)));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    ByteRanges openByteRanges() throws IOException {
+        if (content != null) {
+            return (long position, long count, WritableByteChannel target) ->
+                    writeFully(ByteBuffer.wrap(content, (int) position, (int) count), target);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new ByteRanges() {
+            @Override
+            public void copyTo(long position, long count, WritableByteChannel target) throws IOException {
+                for (long transferred = 0; transferred < count; ) {
+                    long chunk = channel.transferTo(position + transferred, count - transferred, target);
+                    if (chunk <= 0) {
+                        throw new IOException("Unexpected end of " + path + " at byte " + (position + transferred));
+                    }
+                    transferred += chunk;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    static void writeFully(ByteBuffer buffer, WritableByteChannel target) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Byte ranges of the content, copied to a target channel
+     */
+    interface ByteRanges extends Closeable {
+
+        void copyTo(long position, long count, WritableByteChannel target) throws IOException;
+
+        @Override
+        default void close() throws IOException {}
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.tasks.TaskMetrics;
+import org.gradle.api.GradleException;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Matches and transforms the values of single property files. It holds only the settings of a run, not the task,
+ * so the same code runs on the task thread and in {@link FileTransformAction} work units.
+ */
+final class PropertyFileTransformer {
+
+    @FunctionalInterface
+    interface ValueFunction {
+        String process(PBEStringEncryptor encryptor, String extractedValue);
+    }
+
+    @FunctionalInterface
+    interface FailureHandler {
+        /**
+         * @param lineNumber line number, starting from 1, where the value begins
+         */
+        void onValueFailure(Path file, int lineNumber, RuntimeException cause);
+    }
+
+    @FunctionalInterface
+    interface WriteListener {
+        /**
+         * Called with the written content before it is moved over the file
+         */
+        void beforeMove(Path file, Path writtenContent) throws IOException;
+    }
+
+    private final List<FileFormatHandler> formatHandlers;
+    private final ValueMatcher valueMatcher;
+    private final String propertyPrefix;
+    private final String propertySuffix;
+    private final boolean readOnly;
+    private final Properties rewrittenConfig;
+    private final boolean parallelSites;
+    private final ValueFunction valueFunction;
+    private final FailureHandler failureHandler;
+    private final BooleanSupplier stopProcessing;
+    private final TaskMetrics metrics;
+    private final WriteListener writeListener;
+
+    /**
+     * @param rewrittenConfig new values of config keys replaced besides the values, {@code null} for none
+     * @param parallelSites   to split the sites of a file over the pool it is handled in
+     * @param writeListener   {@code null} when nobody needs to know about rewrites
+     */
+    PropertyFileTransformer(List<FileFormatHandler> formatHandlers, ValueMatcher valueMatcher, String propertyPrefix, String propertySuffix,
+                            boolean readOnly, Properties rewrittenConfig, boolean parallelSites, ValueFunction valueFunction,
+                            FailureHandler failureHandler, BooleanSupplier stopProcessing, TaskMetrics metrics, WriteListener writeListener) {
+        this.formatHandlers = formatHandlers;
+        this.valueMatcher = valueMatcher;
+        this.propertyPrefix = propertyPrefix;
+        this.propertySuffix = propertySuffix;
+        this.readOnly = readOnly;
+        this.rewrittenConfig = rewrittenConfig;
+        this.parallelSites = parallelSites;
+        this.valueFunction = valueFunction;
+        this.failureHandler = failureHandler;
+        this.stopProcessing = stopProcessing;
+        this.metrics = metrics;
+        this.writeListener = writeListener;
+    }
+
+    /**
+     * @return the default failure of a value that can't be processed
+     */
+    static GradleException valueFailure(Path file, int lineNumber, RuntimeException cause) {
+        return new GradleException("Failed to process value at " + file + ":" + lineNumber, cause);
+    }
+
+    /**
+     * @return sites of the values and of the rewritten config keys, in file order
+     */
+    List<ValueSite> match(PropertyFileSource source) throws IOException {
+        Path file = source.getPath();
+        long matchStart = System.nanoTime();
+        FileFormatHandler formatHandler = formatHandler(file);
+        List<ValueSite> valueSites = formatHandler.collectValueSites(source, valueMatcher);
+        if (rewrittenConfig != null && !rewrittenConfig.isEmpty()) {
+            List<ValueSite> configSites = formatHandler.collectConfigSites(source, rewrittenConfig);
+            if (!configSites.isEmpty()) {
+                valueSites = new ArrayList<>(valueSites);
+                valueSites.addAll(configSites);
+                valueSites.sort(Comparator.comparingLong(ValueSite::getStartOffset));
+            }
+        }
+        metrics.record(TaskMetrics.Phase.MATCH, file, matchStart);
+        return valueSites;
+    }
+
+    /**
+     * Processes the matched sites and rewrites the file, unless the run is read only
+     *
+     * @return number of processed values
+     */
+    int transform(PBEStringEncryptor encryptor, PropertyFileSource source, List<ValueSite> valueSites) throws IOException {
+        Path file = source.getPath();
+        long cryptoStart = System.nanoTime();
+        processValueSites(encryptor, file, valueSites);
+        metrics.record(TaskMetrics.Phase.CRYPTO, file, cryptoStart);
+        int valueCount = valueSites.stream().mapToInt(ValueSite::getValueCount).sum();
+        metrics.file(file).setValues(valueCount);
+        if (!readOnly) {
+            long writeStart = System.nanoTime();
+            rewriteFile(source, valueSites);
+            metrics.record(TaskMetrics.Phase.WRITE, file, writeStart);
+        }
+        return valueCount;
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private FileFormatHandler formatHandler(Path file) {
+        FileFormatHandler handler = FileFormats.find(formatHandlers, file.getFileName().toString());
+        if (handler == null) {
+            throw new GradleException("Unsupported file format: " + file);
+        }
+        return handler;
+    }
+
+    /**
+     * Runs the PBE operation for every collected site as one batch. In parallel mode the batch is split over
+     * the pool that the current file is handled in, so a single large file scales the same way as many small ones.
+     */
+    private void processValueSites(PBEStringEncryptor encryptor, Path file, List<ValueSite> valueSites) {
+        Stream<ValueSite> siteStream = parallelSites ? valueSites.parallelStream() : valueSites.stream();
+        siteStream.forEach((ValueSite valueSite) -> {
+            List<String> extractedValues = valueSite.getExtractedValues();
+            for (int i = 0; i < extractedValues.size(); i++) {
+                if (stopProcessing.getAsBoolean()) {
+                    return;
+                }
+                try {
+                    String processedValue = valueFunction.process(encryptor, extractedValues.get(i));
+                    valueSite.setProcessedValue(i, propertyPrefix + processedValue + propertySuffix);
+                } catch (RuntimeException e) {
+                    failureHandler.onValueFailure(file, valueSite.getLineIndex() + 1, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Splices the processed values into a sibling temp file, then moves it over the original. The source stays
+     * untouched until the move, so an interrupted write can't truncate it.
+     */
+    private void rewriteFile(PropertyFileSource source, List<ValueSite> valueSites) throws IOException {
+        Path sourceFile = source.getPath().toAbsolutePath();
+        Path tempFile = Files.createTempFile(sourceFile.getParent(), "." + sourceFile.getFileName(), ".tmp");
+        try {
+            try (PropertyFileSource.ByteRanges sourceRanges = source.openByteRanges();
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                spliceValueSites(sourceRanges, source.getSize(), target, valueSites);
+            }
+            copyFilePermissions(sourceFile, tempFile);
+            if (writeListener != null) {
+                writeListener.beforeMove(sourceFile, tempFile);
+            }
+            try {
+                Files.move(tempFile, sourceFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void copyFilePermissions(Path sourceFile, Path targetFile) throws IOException {
+        if (Files.getFileStore(sourceFile).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(targetFile, Files.getPosixFilePermissions(sourceFile));
+        }
+    }
+
+    /**
+     * Copies the bytes between the sites unchanged and writes the rendered sites in their place
+     */
+    private static void spliceValueSites(PropertyFileSource.ByteRanges sourceRanges, long sourceSize, FileChannel target, List<ValueSite> valueSites) throws IOException {
+        long copiedUpTo = 0;
+        for (ValueSite valueSite : valueSites) {
+            if (valueSite.getStartOffset() < copiedUpTo) {
+                throw new IllegalStateException("Value sites overlap at byte " + valueSite.getStartOffset());
+            }
+            sourceRanges.copyTo(copiedUpTo, valueSite.getStartOffset() - copiedUpTo, target);
+            PropertyFileSource.writeFully(ByteBuffer.wrap(valueSite.render().getBytes(StandardCharsets.UTF_8)), target);
+            copiedUpTo = valueSite.getEndOffset();
+        }
+        sourceRanges.copyTo(copiedUpTo, sourceSize - copiedUpTo, target);
+    }
+}
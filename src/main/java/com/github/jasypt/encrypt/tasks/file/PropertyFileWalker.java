@@ -0,0 +1,234 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Discovers files of the selected formats below the root directory. The walk can be restricted to source directory globs
+ * like <code>src/&#42;/resources</code>, files are filtered by include/exclude globs relative to the root directory,
+ * and {@code .gitignore} rules can optionally be applied. Skipped directories, like the directories of nested projects,
+ * are never entered. In parallel mode every directory is listed in its own fork-join task, which pays off for very wide trees.
+ */
+final class PropertyFileWalker {
+
+    static final Set<String> EXCLUDED_DIRECTORIES = new HashSet<>(Arrays.asList(".gradle", "build", "out", "target", ".idea", "gradle", ".git", "node_modules"));
+    private static final String GLOB_SPECIAL_CHARACTERS = "*?[{";
+
+    private final Path rootPath;
+    private final List<String> sourceDirs;
+    private final List<PathMatcher> includeMatchers;
+    private final List<PathMatcher> excludeMatchers;
+    private final Set<Path> skippedDirectories;
+    private final Pattern fileNamePattern;
+    private final List<FileFormatHandler> formatHandlers;
+    private final boolean respectGitIgnore;
+    private final boolean parallel;
+    private final int parallelism;
+    private final Consumer<IOException> errorHandler;
+
+    PropertyFileWalker(Path rootPath, List<String> sourceDirs, List<String> includes, List<String> excludes, Collection<Path> skippedDirectories,
+                       String fileFilterPattern, List<FileFormatHandler> formatHandlers, boolean respectGitIgnore, boolean parallel,
+                       int parallelism, Consumer<IOException> errorHandler) {
+        this.rootPath = rootPath;
+        this.sourceDirs = sourceDirs;
+        this.includeMatchers = toGlobMatchers(includes);
+        this.excludeMatchers = toGlobMatchers(excludes);
+        this.skippedDirectories = new HashSet<>();
+        for (Path skippedDirectory : skippedDirectories) {
+            this.skippedDirectories.add(PropertyFileWatcher.normalize(skippedDirectory));
+        }
+        this.fileNamePattern = fileFilterPattern != null ? Pattern.compile(fileFilterPattern) : null;
+        this.formatHandlers = formatHandlers;
+        this.respectGitIgnore = respectGitIgnore;
+        this.parallel = parallel;
+        this.parallelism = parallelism;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * @return sorted list of discovered files, each file listed once even if source directories overlap
+     */
+    List<Path> walk() {
+        Set<Path> propertyPaths = new TreeSet<>();
+        for (Path walkRoot : resolveWalkRoots()) {
+            try {
+                GitIgnoreRules gitIgnoreRules = respectGitIgnore ? GitIgnoreRules.forDirectory(rootPath, walkRoot) : GitIgnoreRules.EMPTY;
+                propertyPaths.addAll(walkDirectory(walkRoot, gitIgnoreRules));
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+        }
+        return new ArrayList<>(propertyPaths);
+    }
+
+    static PathMatcher createGlobMatcher(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        if (!glob.startsWith("**/")) {
+            return matcher;
+        }
+        PathMatcher topLevelMatcher = createGlobMatcher(glob.substring(3)); // '**/' also matches the top level
+        return (Path path) -> matcher.matches(path) || topLevelMatcher.matches(path);
+    }
+
+    private List<Path> walkDirectory(Path walkRoot, GitIgnoreRules gitIgnoreRules) {
+        DirectoryWalkTask walkTask = new DirectoryWalkTask(walkRoot, gitIgnoreRules);
+        if (!parallel) {
+            return walkTask.compute();
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            return walkTask.invoke();
+        }
+        ForkJoinPool walkPool = new ForkJoinPool(parallelism);
+        try {
+            return walkPool.invoke(walkTask);
+        } finally {
+            walkPool.shutdown();
+        }
+    }
+
+    private List<Path> resolveWalkRoots() {
+        if (sourceDirs.isEmpty()) {
+            return Collections.singletonList(rootPath);
+        }
+        Set<Path> walkRoots = new TreeSet<>();
+        for (String sourceDir : sourceDirs) {
+            Path literalPrefix = rootPath.resolve(getLiteralPrefix(sourceDir)).normalize();
+            if (literalPrefix.toString().equals(rootPath.resolve(sourceDir).normalize().toString())) {
+                if (Files.isDirectory(literalPrefix)) {
+                    walkRoots.add(literalPrefix);
+                }
+                continue;
+            }
+            collectMatchingDirectories(literalPrefix, createGlobMatcher(sourceDir), walkRoots);
+        }
+        return new ArrayList<>(walkRoots);
+    }
+
+    private void collectMatchingDirectories(Path directory, PathMatcher sourceDirMatcher, Set<Path> walkRoots) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (!Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS) || isExcluded(entry)) {
+                    continue;
+                }
+                if (sourceDirMatcher.matches(rootPath.relativize(entry))) {
+                    walkRoots.add(entry);
+                } else {
+                    collectMatchingDirectories(entry, sourceDirMatcher, walkRoots);
+                }
+            }
+        } catch (IOException e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private String getLiteralPrefix(String glob) {
+        StringBuilder prefix = new StringBuilder();
+        for (String segment : glob.split("[/\\\\]")) {
+            if (segment.chars().anyMatch((int segmentChar) -> GLOB_SPECIAL_CHARACTERS.indexOf(segmentChar) >= 0)) {
+                break;
+            }
+            prefix.append(segment).append('/');
+        }
+        return prefix.toString();
+    }
+
+    private boolean isExcluded(Path directory) {
+        if (EXCLUDED_DIRECTORIES.contains(directory.getFileName().toString())) {
+            return true;
+        }
+        if (!skippedDirectories.isEmpty() && skippedDirectories.contains(PropertyFileWatcher.normalize(directory))) {
+            return true;
+        }
+        Path relativePath = rootPath.relativize(directory);
+        return excludeMatchers.stream().anyMatch((PathMatcher matcher) -> matcher.matches(relativePath));
+    }
+
+    private boolean isMatchingFile(Path file) {
+        String fileName = file.getFileName().toString();
+        if (FileFormats.find(formatHandlers, fileName) == null) {
+            return false;
+        }
+        if (fileNamePattern != null && !fileNamePattern.matcher(fileName).matches()) {
+            return false;
+        }
+        Path relativePath = rootPath.relativize(file);
+        if (!includeMatchers.isEmpty() && includeMatchers.stream().noneMatch((PathMatcher matcher) -> matcher.matches(relativePath))) {
+            return false;
+        }
+        return excludeMatchers.stream().noneMatch((PathMatcher matcher) -> matcher.matches(relativePath));
+    }
+
+    private static List<PathMatcher> toGlobMatchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            matchers.add(createGlobMatcher(glob));
+        }
+        return matchers;
+    }
+
+    private final class DirectoryWalkTask extends RecursiveTask<List<Path>> {
+
+        private final Path directory;
+        private final GitIgnoreRules gitIgnoreRules;
+
+        private DirectoryWalkTask(Path directory, GitIgnoreRules gitIgnoreRules) {
+            this.directory = directory;
+            this.gitIgnoreRules = gitIgnoreRules;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> propertyPaths = new ArrayList<>();
+            List<DirectoryWalkTask> subdirectoryTasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (gitIgnoreRules.isIgnored(entry, attributes.isDirectory())) {
+                        continue;
+                    }
+                    if (attributes.isDirectory() && !isExcluded(entry)) {
+                        GitIgnoreRules subdirectoryRules = respectGitIgnore ? gitIgnoreRules.child(entry) : gitIgnoreRules;
+                        subdirectoryTasks.add(new DirectoryWalkTask(entry, subdirectoryRules));
+                    } else if (attributes.isRegularFile() && isMatchingFile(entry)) {
+                        propertyPaths.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+
+            if (parallel) {
+                for (DirectoryWalkTask subdirectoryTask : invokeAll(subdirectoryTasks)) {
+                    propertyPaths.addAll(subdirectoryTask.join());
+                }
+            } else {
+                for (DirectoryWalkTask subdirectoryTask : subdirectoryTasks) {
+                    propertyPaths.addAll(subdirectoryTask.compute());
+                }
+            }
+            return propertyPaths;
+        }
+    }
+}
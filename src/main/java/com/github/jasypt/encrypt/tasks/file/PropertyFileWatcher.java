@@ -0,0 +1,135 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the directories of the discovered files and reports the files changed since the last poll.
+ * <p>
+ * Events are debounced: after the first one, polling goes on until no event has come in for the debounce time,
+ * so an editor saving a file in several steps triggers a single run. Files that still have the content
+ * the task wrote itself are left out, so the task's own rewrites never trigger another run.
+ */
+final class PropertyFileWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, String> ownWrites = new ConcurrentHashMap<>();
+
+    private PropertyFileWatcher(WatchService watchService, long debounceMillis) {
+        this.watchService = watchService;
+        this.debounceMillis = debounceMillis;
+    }
+
+    static PropertyFileWatcher create(long debounceMillis) throws IOException {
+        return new PropertyFileWatcher(FileSystems.getDefault().newWatchService(), debounceMillis);
+    }
+
+    /**
+     * Starts watching the directories of the files, directories that are already watched are skipped
+     */
+    void watch(Collection<Path> files) throws IOException {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : files) {
+            Path directory = normalize(file).getParent();
+            if (directory != null) {
+                directories.add(directory);
+            }
+        }
+        directories.removeAll(watchedDirectories.values());
+        for (Path directory : directories) {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, directory);
+        }
+    }
+
+    /**
+     * Records the content written by the task, before it is moved over the file
+     */
+    void recordOwnWrite(Path file, Path writtenContent) throws IOException {
+        ownWrites.put(normalize(file), ProcessedFilesManifest.hash(writtenContent));
+    }
+
+    /**
+     * Blocks until files have changed and the changes have settled
+     *
+     * @return absolute paths of the changed files, or a directory when its events have been lost, so all of its
+     * files should be checked. {@code null} when the watcher has been closed or the thread interrupted.
+     */
+    Set<Path> poll() throws IOException {
+        Set<Path> changes = new LinkedHashSet<>();
+        try {
+            WatchKey key = watchService.take();
+            while (key != null) {
+                collectChanges(key, changes);
+                key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ClosedWatchServiceException e) {
+            return null;
+        }
+        changes.removeIf(this::isUnchangedOwnWrite);
+        return changes;
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changes) {
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changes.add(directory);
+            } else {
+                changes.add(directory.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    /**
+     * Deleted files are left out as well, there is nothing to process
+     */
+    private boolean isUnchangedOwnWrite(Path path) {
+        if (Files.isDirectory(path)) {
+            return false;
+        }
+        if (!Files.isRegularFile(path)) {
+            return true;
+        }
+        String ownWrite = ownWrites.get(path);
+        try {
+            return ownWrite != null && ownWrite.equals(ProcessedFilesManifest.hash(path));
+        } catch (IOException e) {
+            return true; // removed while checked
+        }
+    }
+
+    static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
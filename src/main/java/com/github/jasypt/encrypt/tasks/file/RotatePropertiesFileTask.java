@@ -0,0 +1,269 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import com.github.jasypt.encrypt.JasyptPlugin;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.options.Option;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Re-encrypts all values wrapped with {@code ENC()} with a new password and/or encryptor configuration.
+ * Every value is decrypted and encrypted again in memory, so plain text never reaches the disk,
+ * and every file is rewritten once.
+ * <p>
+ * The current configuration is read from the property files as for the other tasks. The new configuration
+ * is the current one overridden by the {@code --new-config} file and then by the single value options. Config keys
+ * that change are rewritten in the files that set them, in the same pass as the values, so the other tasks
+ * resolve the new configuration afterwards.
+ */
+public abstract class RotatePropertiesFileTask extends PropertiesFileAwareTask {
+
+    public static final String TASK_NAME = "rotateProperties";
+    public static final String AGGREGATE_TASK_NAME = "rotateAllProperties";
+    private static final String TASK_DESCRIPTION = "Re-encrypts the property values wrapped with 'ENC(encrypted_text)' with a new password and/or configuration";
+
+    public static final String NEW_PASSWORD_ENVIRONMENT_VARIABLE = "JASYPT_ENCRYPTOR_NEW_PASSWORD";
+    public static final String NEW_PASSWORD_PROPERTY = "jasypt.encryptor.new-password";
+    private static final String POOL_SIZE_KEY = "jasypt.encryptor.pool-size";
+
+    private final Property<String> newPassword = getProject().getObjects().property(String.class);
+    private transient String newPasswordOption;
+    private boolean newPasswordOptionSet;
+    private String newConfigFile;
+    private String newAlgorithm;
+    private String newKeyObtentionIterations;
+    private String newMode;
+
+    private transient PBEStringEncryptor newEncryptor;
+    private transient String newEncryptorKey;
+    private transient Properties rewrittenConfig;
+
+    public RotatePropertiesFileTask() {
+        this.setGroup(JasyptPlugin.TASK_GROUP_NAME);
+        this.setDescription(TASK_DESCRIPTION);
+        this.setParallel(true);
+        newPassword.convention(secretProvider(getProject().getProviders(), NEW_PASSWORD_PROPERTY, NEW_PASSWORD_ENVIRONMENT_VARIABLE));
+    }
+
+    @Override
+    public void validateOptions() {
+        String newPassword = newPassword();
+        if (newPassword == null || newPassword.trim().isEmpty()) {
+            throw new OptionValidationException("--new-password is required!");
+        }
+        if (isWatch()) {
+            throw new OptionValidationException("--watch is not supported, rotated values would be rotated again on every change");
+        }
+        if (newConfigFile != null && !Files.isRegularFile(resolveNewConfigPath())) {
+            throw new OptionValidationException("--new-config file not found: " + resolveNewConfigPath());
+        }
+    }
+
+    @Override
+    protected void beforeFilesProcessed() {
+        this.rewrittenConfig = readConfigChanges();
+    }
+
+    @Override
+    protected PBEStringEncryptor initEncryptor(JasyptConfig config) {
+        PBEStringEncryptor currentEncryptor = super.initEncryptor(config);
+        if (newEncryptor == null) {
+            checkRewrittenKeysAreSet(config);
+            JasyptConfig newConfig = createNewConfig(config);
+            String newPassword = newPassword();
+            this.newEncryptor = instrument(createEncryptor(newConfig, newPassword), newConfig);
+            this.newEncryptorKey = sharedEncryptorKey(newConfig, newPassword);
+        }
+        return currentEncryptor;
+    }
+
+    @Override
+    public String process(PBEStringEncryptor encryptor, String extractedValue) {
+        return ValueOperation.ROTATE.process(encryptor, newEncryptor, extractedValue);
+    }
+
+    @Override
+    ValueOperation valueOperation() {
+        return ValueOperation.ROTATE;
+    }
+
+    @Override
+    void configureWorkParameters(FileTransformAction.Parameters parameters) {
+        parameters.getNewEncryptorKey().set(newEncryptorKey);
+    }
+
+    @Override
+    public String getPropertyPrefix() {
+        return "ENC(";
+    }
+
+    @Override
+    public String getPropertySuffix() {
+        return ")";
+    }
+
+    @Override
+    public Pattern getDefaultExtractPattern() {
+        return DecryptPropertiesFileTask.DECRYPT_EXTRACTION_REGEX;
+    }
+
+    @Override
+    public String getValueMarker() {
+        return "ENC(";
+    }
+
+    @Override
+    protected boolean acceptsPropertyFile(Path file) {
+        return newConfigFile == null || !file.equals(resolveNewConfigPath());
+    }
+
+    @Override
+    @Internal
+    Properties getRewrittenConfig() {
+        return rewrittenConfig;
+    }
+
+    @Override
+    protected String processedValuesLabel() {
+        return "No of values rotated";
+    }
+
+    @Option(option = "new-password", description = "password for the re-encrypted values [required], defaults to the "
+            + NEW_PASSWORD_PROPERTY + " Gradle property or the " + NEW_PASSWORD_ENVIRONMENT_VARIABLE + " environment variable")
+    public void setNewPassword(String newPassword) {
+        this.newPasswordOption = newPassword;
+        this.newPasswordOptionSet = true;
+    }
+
+    /**
+     * New password used when the {@code --new-password} option is not set, read like {@link #getPassword()}
+     */
+    @Internal
+    public Property<String> getNewPassword() {
+        return newPassword;
+    }
+
+    @Option(option = "new-config", description = "Properties or yaml file with the new 'jasypt.encryptor.*' configuration, relative to the project directory")
+    public void setNewConfigFile(String newConfigFile) {
+        this.newConfigFile = newConfigFile;
+    }
+
+    @Option(option = "new-algorithm", description = "New 'jasypt.encryptor.algorithm'")
+    public void setNewAlgorithm(String newAlgorithm) {
+        this.newAlgorithm = newAlgorithm;
+    }
+
+    @Option(option = "new-key-obtention-iterations", description = "New 'jasypt.encryptor.key-obtention-iterations'")
+    public void setNewKeyObtentionIterations(String newKeyObtentionIterations) {
+        this.newKeyObtentionIterations = newKeyObtentionIterations;
+    }
+
+    @Option(option = "new-mode", description = "New 'jasypt.encryptor.mode'")
+    public void setNewMode(String newMode) {
+        this.newMode = newMode;
+    }
+
+    @Input
+    @org.gradle.api.tasks.Optional
+    public String getNewConfigFile() {
+        return newConfigFile;
+    }
+
+    @Input
+    @org.gradle.api.tasks.Optional
+    public String getNewAlgorithm() {
+        return newAlgorithm;
+    }
+
+    @Input
+    @org.gradle.api.tasks.Optional
+    public String getNewKeyObtentionIterations() {
+        return newKeyObtentionIterations;
+    }
+
+    @Input
+    @org.gradle.api.tasks.Optional
+    public String getNewMode() {
+        return newMode;
+    }
+
+    @Internal
+    public PBEStringEncryptor getNewEncryptor() {
+        return newEncryptor;
+    }
+
+    /**
+     * @return config keys of the {@code --new-config} file overridden by the single value options
+     */
+    private Properties readConfigChanges() {
+        Properties configChanges = new Properties();
+        if (newConfigFile != null) {
+            Path newConfigPath = resolveNewConfigPath();
+            try {
+                JasyptConfigScanner.scan(PropertyFileSource.read(newConfigPath), isYamlFile(newConfigPath), configChanges);
+            } catch (IOException e) {
+                throw new GradleException("Can't read new encryptor configuration: " + newConfigPath, e);
+            }
+        }
+        putIfPresent(configChanges, "jasypt.encryptor.algorithm", newAlgorithm);
+        putIfPresent(configChanges, "jasypt.encryptor.key-obtention-iterations", newKeyObtentionIterations);
+        putIfPresent(configChanges, "jasypt.encryptor.mode", newMode);
+        return configChanges;
+    }
+
+    /**
+     * A changed key that no file sets can't be rewritten, the other tasks would keep resolving its old value
+     * and fail to decrypt the rotated values
+     */
+    private void checkRewrittenKeysAreSet(JasyptConfig currentConfig) {
+        Properties currentProperties = currentConfig.toProperties();
+        for (String key : rewrittenConfig.stringPropertyNames()) {
+            String newValue = rewrittenConfig.getProperty(key);
+            boolean setInFile = getFileConfigs().values().stream()
+                    .anyMatch((Properties fileConfig) -> fileConfig.containsKey(key));
+            String currentValue = currentProperties.getProperty(key);
+            // the pool size doesn't change the encrypted values
+            if (setInFile || POOL_SIZE_KEY.equals(key) || newValue.equals(currentValue)) {
+                continue;
+            }
+            throw new GradleException("'" + key + "' is not set in any property file, add it"
+                    + (currentValue != null ? " with its current value '" + currentValue + "'" : "")
+                    + " so that it can be rotated to '" + newValue + "'");
+        }
+    }
+
+    private String newPassword() {
+        return secretValue(newPasswordOption, newPasswordOptionSet, "--new-password", newPassword, NEW_PASSWORD_PROPERTY, NEW_PASSWORD_ENVIRONMENT_VARIABLE);
+    }
+
+    private JasyptConfig createNewConfig(JasyptConfig currentConfig) {
+        Properties newProperties = currentConfig.toProperties();
+        newProperties.putAll(rewrittenConfig);
+
+        JasyptConfig newConfig = JasyptConfig.fromProperties(newProperties);
+        if (isParallel()) {
+            newConfig.setPoolSize(String.valueOf(getParallelism()));
+        }
+        return newConfig;
+    }
+
+    private Path resolveNewConfigPath() {
+        return rootPath().resolve(newConfigFile).normalize();
+    }
+
+    private static void putIfPresent(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+}
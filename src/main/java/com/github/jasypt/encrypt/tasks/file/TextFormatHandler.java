@@ -0,0 +1,83 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.gradle.api.GradleException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Base of the formats scanned as a whole text, like JSON and XML, where values are escaped for their place in the
+ * document. Char offsets of the values are mapped to byte offsets in one pass. A file that is not valid UTF-8 fails
+ * when it has values, since it couldn't be written back unchanged.
+ */
+abstract class TextFormatHandler implements FileFormatHandler {
+
+    /**
+     * Receives the values of a text in document order
+     */
+    interface ValueCollector {
+
+        /**
+         * @param matchStart start of the replaced chars, marker included
+         * @param matchEnd   end of the replaced chars
+         * @param renderer   escapes the processed value for its place in the document
+         */
+        void value(int matchStart, int matchEnd, String extractedValue, Function<String, String> renderer);
+    }
+
+    protected abstract void collectValues(String text, ValueMatcher valueMatcher, ValueCollector collector);
+
+    @Override
+    public List<ValueSite> collectValueSites(PropertyFileSource source, ValueMatcher valueMatcher) throws IOException {
+        String text = source.readText();
+        List<int[]> ranges = new ArrayList<>();
+        List<String> extractedValues = new ArrayList<>();
+        List<Function<String, String>> renderers = new ArrayList<>();
+        collectValues(text, valueMatcher, (int matchStart, int matchEnd, String extractedValue, Function<String, String> renderer) -> {
+            ranges.add(new int[]{matchStart, matchEnd});
+            extractedValues.add(extractedValue);
+            renderers.add(renderer);
+        });
+        List<ValueSite> valueSites = new ArrayList<>(ranges.size());
+        if (ranges.isEmpty()) {
+            return valueSites;
+        }
+        if (!source.isValidUtf8()) {
+            throw new GradleException("File " + source.getPath() + " is not valid UTF-8, its values can't be replaced without changing other bytes");
+        }
+        TextPositions positions = new TextPositions(text);
+        for (int i = 0; i < ranges.size(); i++) {
+            int[] range = ranges.get(i);
+            valueSites.add(new ValueSite(positions.lineIndex(range[0]), positions.byteOffset(range[0]), positions.byteOffset(range[1]),
+                    extractedValues.get(i), renderers.get(i)));
+        }
+        return valueSites;
+    }
+
+    /**
+     * Matches the values of a region, like a string literal or text node, and decodes them with the unescaper.
+     * Values that can't be decoded are left as they are.
+     */
+    protected static void collectRegion(String text, int regionStart, int regionEnd, ValueMatcher valueMatcher,
+                                        Function<String, String> unescaper, Function<String, String> renderer, ValueCollector collector) {
+        String region = text.substring(regionStart, regionEnd);
+        int[] matches = valueMatcher.find(region);
+        for (int offset = 0; offset < matches.length; offset += ValueMatcher.OFFSETS_PER_MATCH) {
+            String extractedValue;
+            try {
+                extractedValue = unescaper.apply(ValueMatcher.value(region, matches, offset / ValueMatcher.OFFSETS_PER_MATCH));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            collector.value(regionStart + matches[offset + ValueMatcher.MATCH_START], regionStart + matches[offset + ValueMatcher.MATCH_END],
+                    extractedValue, renderer);
+        }
+    }
+
+    protected static int indexOrLength(String text, String search, int fromIndex) {
+        int index = text.indexOf(search, fromIndex);
+        return index >= 0 ? index : text.length();
+    }
+}
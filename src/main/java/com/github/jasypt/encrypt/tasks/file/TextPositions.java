@@ -0,0 +1,59 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+/**
+ * Maps char offsets of a decoded file to UTF-8 byte offsets and zero based line indexes. Offsets are expected mostly
+ * in ascending order, so all values of a file are mapped in one pass over its text.
+ */
+final class TextPositions {
+
+    private final String text;
+    private int charIndex;
+    private long byteOffset;
+    private int lineIndex;
+
+    TextPositions(String text) {
+        this.text = text;
+    }
+
+    long byteOffset(int index) {
+        advanceTo(index);
+        return byteOffset;
+    }
+
+    int lineIndex(int index) {
+        advanceTo(index);
+        return lineIndex;
+    }
+
+    private void advanceTo(int index) {
+        if (index < charIndex) {
+            charIndex = 0;
+            byteOffset = 0;
+            lineIndex = 0;
+        }
+        byteOffset += utf8Length(text, charIndex, index);
+        for (; charIndex < index; charIndex++) {
+            if (text.charAt(charIndex) == '\n') {
+                lineIndex++;
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes of the chars in UTF-8, a surrogate pair takes four bytes
+     */
+    static long utf8Length(CharSequence text, int start, int end) {
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            char character = text.charAt(i);
+            if (character < 0x80) {
+                length++;
+            } else if (character < 0x800 || Character.isSurrogate(character)) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
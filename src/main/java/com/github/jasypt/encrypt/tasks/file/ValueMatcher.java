@@ -0,0 +1,97 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the values of a text, all built-in markers with the {@link MarkerScanner}, or the first match of a custom
+ * extract pattern. Every match is reported as four char offsets: {@code [matchStart, matchEnd)} is the part replaced
+ * by the processed value, marker included, and {@code [valueStart, valueEnd)} is the extracted value.
+ */
+final class ValueMatcher {
+
+    static final int MATCH_START = 0;
+    static final int MATCH_END = 1;
+    static final int VALUE_START = 2;
+    static final int VALUE_END = 3;
+    static final int OFFSETS_PER_MATCH = 4;
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final MarkerScanner markerScanner;
+    private final int markerLength;
+    private final Pattern pattern;
+
+    private ValueMatcher(MarkerScanner markerScanner, int markerLength, Pattern pattern) {
+        this.markerScanner = markerScanner;
+        this.markerLength = markerLength;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param marker value marker including the opening parenthesis, like {@code ENC(}
+     */
+    static ValueMatcher forMarker(String marker) {
+        return new ValueMatcher(new MarkerScanner(marker), marker.length(), null);
+    }
+
+    /**
+     * @param pattern expression with the value in its first group
+     */
+    static ValueMatcher forPattern(Pattern pattern) {
+        return new ValueMatcher(null, 0, pattern);
+    }
+
+    /**
+     * @return offsets of all matches in the text, empty when there are none
+     */
+    int[] find(String text) {
+        if (markerScanner == null) {
+            Matcher matcher = pattern.matcher(text);
+            return matcher.find() ? new int[]{matcher.start(), matcher.end(), matcher.start(1), matcher.end(1)} : NO_MATCHES;
+        }
+        int[] valueRanges = markerScanner.scan(text);
+        if (valueRanges.length == 0) {
+            return NO_MATCHES;
+        }
+        int[] matches = new int[valueRanges.length * 2];
+        for (int i = 0, match = 0; i < valueRanges.length; i += 2, match += OFFSETS_PER_MATCH) {
+            matches[match + MATCH_START] = valueRanges[i] - markerLength;
+            matches[match + MATCH_END] = valueRanges[i + 1] + 1;
+            matches[match + VALUE_START] = valueRanges[i];
+            matches[match + VALUE_END] = valueRanges[i + 1];
+        }
+        return matches;
+    }
+
+    /**
+     * @return the first value of the text, or {@code null}
+     */
+    String findFirst(String text) {
+        if (markerScanner != null) {
+            return markerScanner.findFirst(text);
+        }
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    static String value(String text, int[] matches, int matchIndex) {
+        int offset = matchIndex * OFFSETS_PER_MATCH;
+        return text.substring(matches[offset + VALUE_START], matches[offset + VALUE_END]);
+    }
+
+    /**
+     * @return the text with every match replaced, in match order
+     */
+    static String replace(String text, int[] matches, List<String> replacements) {
+        StringBuilder replaced = new StringBuilder(text.length());
+        int copiedUpTo = 0;
+        for (int offset = 0; offset < matches.length; offset += OFFSETS_PER_MATCH) {
+            replaced.append(text, copiedUpTo, matches[offset + MATCH_START])
+                    .append(replacements.get(offset / OFFSETS_PER_MATCH));
+            copiedUpTo = matches[offset + MATCH_END];
+        }
+        return replaced.append(text, copiedUpTo, text.length()).toString();
+    }
+}
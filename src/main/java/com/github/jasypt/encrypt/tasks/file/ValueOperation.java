@@ -0,0 +1,53 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+/**
+ * Value transformation of the built-in tasks. Work units run it by name, so they don't need the task
+ * that submitted them.
+ */
+public enum ValueOperation {
+
+    ENCRYPT {
+        @Override
+        String process(PBEStringEncryptor encryptor, PBEStringEncryptor newEncryptor, String extractedValue) {
+            return encryptor.encrypt(extractedValue);
+        }
+    },
+    DECRYPT {
+        @Override
+        String process(PBEStringEncryptor encryptor, PBEStringEncryptor newEncryptor, String extractedValue) {
+            return encryptor.decrypt(extractedValue);
+        }
+    },
+    ROTATE {
+        @Override
+        String process(PBEStringEncryptor encryptor, PBEStringEncryptor newEncryptor, String extractedValue) {
+            return newEncryptor.encrypt(encryptor.decrypt(extractedValue));
+        }
+    },
+    VERIFY {
+        @Override
+        String process(PBEStringEncryptor encryptor, PBEStringEncryptor newEncryptor, String extractedValue) {
+            encryptor.decrypt(extractedValue);
+            return extractedValue; // plain text is never kept or written
+        }
+
+        @Override
+        boolean isReadOnly() {
+            return true;
+        }
+    };
+
+    /**
+     * @param newEncryptor encryptor of the new configuration, only used by {@link #ROTATE}
+     */
+    abstract String process(PBEStringEncryptor encryptor, PBEStringEncryptor newEncryptor, String extractedValue);
+
+    /**
+     * @return {@code true} when files are never written and value failures are collected instead of failing the file
+     */
+    boolean isReadOnly() {
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Byte range of a file replaced by processed values, usually a single value with its marker, or whole lines
+ * of a multiline value. Sites are reported in file order by a {@link FileFormatHandler}, processed as a batch and
+ * then spliced in, while every byte outside of them is copied unchanged.
+ */
+final class ValueSite {
+
+    private final int lineIndex;
+    private final long startOffset;
+    private final long endOffset;
+    private final List<String> extractedValues;
+    private final Function<List<String>, String> renderer;
+
+    private final String[] processedValues;
+
+    /**
+     * @param renderer creates the replacement of the byte range from the processed values
+     */
+    ValueSite(int lineIndex, long startOffset, long endOffset, List<String> extractedValues, Function<List<String>, String> renderer) {
+        this.lineIndex = lineIndex;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.extractedValues = extractedValues;
+        this.renderer = renderer;
+        this.processedValues = new String[extractedValues.size()];
+    }
+
+    ValueSite(int lineIndex, long startOffset, long endOffset, String extractedValue, Function<String, String> renderer) {
+        this(lineIndex, startOffset, endOffset, Collections.singletonList(extractedValue),
+                (List<String> processedValues) -> renderer.apply(processedValues.get(0)));
+    }
+
+    /**
+     * @return zero based index of the line the site starts at
+     */
+    public int getLineIndex() {
+        return lineIndex;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public List<String> getExtractedValues() {
+        return extractedValues;
+    }
+
+    public int getValueCount() {
+        return extractedValues.size();
+    }
+
+    /**
+     * Sites are processed by one thread each, rendering happens after the batch has completed
+     */
+    public void setProcessedValue(int valueIndex, String processedValue) {
+        this.processedValues[valueIndex] = processedValue;
+    }
+
+    public String render() {
+        return renderer.apply(Arrays.asList(processedValues));
+    }
+}
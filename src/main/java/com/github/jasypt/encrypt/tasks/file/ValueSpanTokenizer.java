@@ -0,0 +1,438 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward only tokenizer for multiline values of {@code .properties} and YAML files. Lines are pushed one by one
+ * and reported to a {@link Listener} in file order, either as plain lines or as multiline spans:
+ * <ul>
+ *     <li>{@code .properties} continuations, where a line ends with an odd number of backslashes</li>
+ *     <li>YAML block scalars with any indicator: {@code |}, {@code >}, with chomping {@code -}/{@code +} and
+ *     indentation indicators, like {@code |-} or {@code >+2}</li>
+ *     <li>YAML single and double quoted scalars spanning several lines, reported folded into one logical line</li>
+ * </ul>
+ * Blocks are joined while they are read, so their lines are not kept. Only quoted scalars keep their lines, to report
+ * them one by one when the closing quote is missing within {@link #MAX_QUOTED_LINES} lines.
+ */
+final class ValueSpanTokenizer implements LineFormatHandler.LineTokenizer {
+
+    static final int MAX_QUOTED_LINES = 1024;
+    private static final int TAB_WHITESPACE_INDENTATION_COUNT = 4;
+
+    enum Style {
+        PROPERTIES_CONTINUATION, YAML_LITERAL, YAML_FOLDED
+    }
+
+    interface Listener {
+
+        /**
+         * A line outside of blocks, or a quoted scalar folded into one line
+         *
+         * @param lineIndex zero based index of the first line
+         * @param lineCount number of lines the text has been read from
+         */
+        void line(int lineIndex, int lineCount, String text);
+
+        /**
+         * A header line, like {@code key=\} or {@code key: |}, and the block of lines following it
+         */
+        void block(int headerIndex, String header, Block block);
+    }
+
+    /**
+     * Lines of a continuation or block scalar, trimmed and joined without separators. Lines of a folded YAML block
+     * are joined with a space, as YAML folds them.
+     */
+    static final class Block {
+        private final Style style;
+        private final int firstLineIndex;
+        private final int lineCount;
+        private final int indentation;
+        private final int maxLineLength;
+        private final String joinedValue;
+
+        private Block(Style style, int firstLineIndex, int lineCount, int indentation, int maxLineLength, String joinedValue) {
+            this.style = style;
+            this.firstLineIndex = firstLineIndex;
+            this.lineCount = lineCount;
+            this.indentation = indentation;
+            this.maxLineLength = maxLineLength;
+            this.joinedValue = joinedValue;
+        }
+
+        Style getStyle() {
+            return style;
+        }
+
+        int getFirstLineIndex() {
+            return firstLineIndex;
+        }
+
+        int getLineCount() {
+            return lineCount;
+        }
+
+        int getIndentation() {
+            return indentation;
+        }
+
+        int getMaxLineLength() {
+            return maxLineLength;
+        }
+
+        String getJoinedValue() {
+            return joinedValue;
+        }
+    }
+
+    private enum State {
+        LINE, BLOCK, QUOTED
+    }
+
+    private final boolean yaml;
+    private final Listener listener;
+    private final StringBuilder joined = new StringBuilder();
+    private final List<String> quotedLines = new ArrayList<>();
+
+    private State state = State.LINE;
+    private int lineIndex = -1;
+
+    private String header;
+    private int headerIndex;
+    private int headerIndentation;
+    private Style blockStyle;
+    private int blockIndentation;
+    private int blockLineCount;
+    private int maxLineLength;
+
+    private char quote;
+    private int blankQuotedLines;
+
+    ValueSpanTokenizer(boolean yaml, Listener listener) {
+        this.yaml = yaml;
+        this.listener = listener;
+    }
+
+    @Override
+    public void accept(String line) {
+        lineIndex++;
+        if (state == State.BLOCK) {
+            if (yaml ? acceptYamlBlockLine(line) : acceptContinuationLine(line)) {
+                return;
+            }
+        } else if (state == State.QUOTED) {
+            acceptQuotedLine(line);
+            return;
+        }
+        acceptLine(line);
+    }
+
+    /**
+     * Reports a pending span, must be called after the last line
+     */
+    @Override
+    public void finish() {
+        if (state == State.BLOCK) {
+            endBlock();
+        } else if (state == State.QUOTED) {
+            reportQuotedLinesOneByOne();
+        }
+    }
+
+    private void acceptLine(String line) {
+        if (yaml) {
+            Style style = yamlBlockStyle(line);
+            if (style != null) {
+                startBlock(line, style);
+                return;
+            }
+            int quoteStart = unclosedQuoteStart(line);
+            if (quoteStart >= 0) {
+                startQuoted(line, line.charAt(quoteStart));
+                return;
+            }
+        } else if (endsWithContinuation(line) && !isPropertiesComment(line)) {
+            startBlock(line, Style.PROPERTIES_CONTINUATION);
+            return;
+        }
+        listener.line(lineIndex, 1, line);
+    }
+
+    private void startBlock(String line, Style style) {
+        state = State.BLOCK;
+        header = line;
+        headerIndex = lineIndex;
+        headerIndentation = indentationOf(line);
+        blockStyle = style;
+        blockIndentation = -1;
+        blockLineCount = 0;
+        maxLineLength = 0;
+        joined.setLength(0);
+    }
+
+    /**
+     * Block lines have the indentation of the first one, which has to be deeper than the header.
+     * A blank or differently indented line ends the block.
+     *
+     * @return {@code false} when the line doesn't belong to the block
+     */
+    private boolean acceptYamlBlockLine(String line) {
+        boolean blank = isBlank(line);
+        int indentation = blank ? -1 : indentationOf(line);
+        if (blank || (blockIndentation < 0 ? indentation <= headerIndentation : indentation != blockIndentation)) {
+            endBlock();
+            return false;
+        }
+        blockIndentation = indentation;
+        appendBlockLine(line, trimmedEnd(line));
+        return true;
+    }
+
+    /**
+     * The continuation ends with the first line without a trailing backslash, that line still belongs to it
+     */
+    private boolean acceptContinuationLine(String line) {
+        if (blockLineCount == 0) {
+            blockIndentation = indentationOf(line);
+        }
+        boolean continues = endsWithContinuation(line);
+        int end = trimmedEnd(line);
+        appendBlockLine(line, continues ? end - 1 : end);
+        if (!continues) {
+            endBlock();
+        }
+        return true;
+    }
+
+    private void appendBlockLine(String line, int end) {
+        int start = Math.min(skipWhitespace(line, 0), end);
+        if (blockStyle == Style.YAML_FOLDED && blockLineCount > 0) {
+            joined.append(' ');
+        }
+        joined.append(line, start, end);
+        maxLineLength = Math.max(maxLineLength, end - start);
+        blockLineCount++;
+    }
+
+    private void endBlock() {
+        state = State.LINE;
+        if (blockLineCount == 0) {
+            listener.line(headerIndex, 1, header);
+        } else {
+            listener.block(headerIndex, header, new Block(blockStyle, headerIndex + 1, blockLineCount,
+                    blockIndentation, maxLineLength, joined.toString()));
+        }
+        header = null;
+    }
+
+    private void startQuoted(String line, char quote) {
+        state = State.QUOTED;
+        this.quote = quote;
+        headerIndex = lineIndex;
+        blankQuotedLines = 0;
+        quotedLines.clear();
+        quotedLines.add(line);
+        joined.setLength(0);
+        joined.append(line, 0, trimmedEnd(line));
+    }
+
+    /**
+     * Line breaks of quoted scalars are folded into a space, a double quoted line ending with a backslash joins
+     * the next one directly. A blank line would fold into a line break, which can't be written back on a single line,
+     * so such a scalar is reported line by line.
+     */
+    private void acceptQuotedLine(String line) {
+        quotedLines.add(line);
+        if (isBlank(line)) {
+            blankQuotedLines++;
+        } else {
+            if (quote == '"' && endsWithContinuation(joined)) {
+                joined.setLength(joined.length() - 1);
+            } else {
+                joined.append(' ');
+            }
+            int start = skipWhitespace(line, 0);
+            int closingQuote = findClosingQuote(line, start, quote);
+            joined.append(line, start, trimmedEnd(line));
+            if (closingQuote >= 0) {
+                state = State.LINE;
+                if (blankQuotedLines > 0) {
+                    reportQuotedLines();
+                } else {
+                    listener.line(headerIndex, quotedLines.size(), joined.toString());
+                }
+                quotedLines.clear();
+                return;
+            }
+        }
+        if (quotedLines.size() >= MAX_QUOTED_LINES) {
+            reportQuotedLinesOneByOne();
+        }
+    }
+
+    private void reportQuotedLinesOneByOne() {
+        state = State.LINE;
+        reportQuotedLines();
+        quotedLines.clear();
+    }
+
+    private void reportQuotedLines() {
+        for (int i = 0; i < quotedLines.size(); i++) {
+            listener.line(headerIndex + i, 1, quotedLines.get(i));
+        }
+    }
+
+    /**
+     * @return block style when the line ends with a block scalar indicator, like {@code key: |-} or {@code - >2 # comment}
+     */
+    static Style yamlBlockStyle(String line) {
+        int end = trimmedEnd(line);
+        int comment = line.indexOf(" #");
+        if (comment >= 0 && comment < end) {
+            end = trimmedEnd(line, comment);
+        }
+        int start = end;
+        while (start > 0 && !Character.isWhitespace(line.charAt(start - 1))) {
+            start--;
+        }
+        if (start == end || !isBlockIndicator(line, start, end)) {
+            return null;
+        }
+        if (skipWhitespace(line, 0) != start) {
+            char separator = line.charAt(trimmedEnd(line, start) - 1);
+            if (separator != ':' && separator != '-') {
+                return null;
+            }
+        }
+        return line.charAt(start) == '|' ? Style.YAML_LITERAL : Style.YAML_FOLDED;
+    }
+
+    private static boolean isBlockIndicator(String line, int start, int end) {
+        char style = line.charAt(start);
+        if ((style != '|' && style != '>') || end - start > 3) {
+            return false;
+        }
+        boolean chomping = false;
+        boolean indentation = false;
+        for (int i = start + 1; i < end; i++) {
+            char character = line.charAt(i);
+            if ((character == '-' || character == '+') && !chomping) {
+                chomping = true;
+            } else if (character >= '1' && character <= '9' && !indentation) {
+                indentation = true;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return index of the opening quote when the value of the line is a quoted scalar not closed on the same line
+     */
+    static int unclosedQuoteStart(String line) {
+        int position = skipWhitespace(line, 0);
+        while (line.startsWith("- ", position)) {
+            position = skipWhitespace(line, position + 2);
+        }
+        if (position >= line.length() || line.charAt(position) == '#') {
+            return -1;
+        }
+        char first = line.charAt(position);
+        if (isQuote(first)) {
+            int closingQuote = findClosingQuote(line, position + 1, first);
+            if (closingQuote < 0) {
+                return position;
+            }
+            position = closingQuote + 1; // quoted key
+            if (position >= line.length() || line.charAt(position) != ':') {
+                return -1;
+            }
+            position++;
+        } else {
+            int separator = line.indexOf(": ", position);
+            if (separator < 0) {
+                return -1;
+            }
+            position = separator + 1;
+        }
+        position = skipWhitespace(line, position);
+        if (position >= line.length() || !isQuote(line.charAt(position))) {
+            return -1;
+        }
+        return findClosingQuote(line, position + 1, line.charAt(position)) < 0 ? position : -1;
+    }
+
+    /**
+     * Single quotes are escaped by doubling them, double quotes by a backslash
+     */
+    private static int findClosingQuote(String text, int from, char quote) {
+        for (int i = from; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (quote == '"' && character == '\\') {
+                i++;
+            } else if (character == quote) {
+                if (quote == '\'' && i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                    i++;
+                    continue;
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isQuote(char character) {
+        return character == '"' || character == '\'';
+    }
+
+    private static boolean endsWithContinuation(CharSequence text) {
+        int backslashes = 0;
+        for (int i = trimmedEnd(text, text.length()) - 1; i >= 0 && text.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private static boolean isPropertiesComment(String line) {
+        int start = skipWhitespace(line, 0);
+        return start < line.length() && (line.charAt(start) == '#' || line.charAt(start) == '!');
+    }
+
+    static int indentationOf(String line) {
+        int indentation = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char character = line.charAt(i);
+            if (!Character.isWhitespace(character)) {
+                break;
+            }
+            indentation += character == '\t' ? TAB_WHITESPACE_INDENTATION_COUNT : 1;
+        }
+        return indentation;
+    }
+
+    private static boolean isBlank(String line) {
+        return skipWhitespace(line, 0) == line.length();
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int position = from;
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int trimmedEnd(CharSequence text) {
+        return trimmedEnd(text, text.length());
+    }
+
+    private static int trimmedEnd(CharSequence text, int end) {
+        int position = end;
+        while (position > 0 && Character.isWhitespace(text.charAt(position - 1))) {
+            position--;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.options.Option;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
+
+public abstract class VerifyEncryptedPropertiesTask extends PropertiesFileAwareTask {
+
+    public static final String TASK_NAME = "verifyEncryptedProperties";
+    public static final String AGGREGATE_TASK_NAME = "verifyAllEncryptedProperties";
+    private static final String TASK_DESCRIPTION = "Verifies that all values wrapped with 'ENC(encrypted_text)' can be decrypted, without changing any file";
+
+    private final Queue<ValueFailure> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private boolean reportAll;
+
+    private static final class ValueFailure {
+        private final Path file;
+        private final int lineNumber;
+        private final String message;
+
+        private ValueFailure(Path file, int lineNumber, String message) {
+            this.file = file;
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+    }
+
+    public VerifyEncryptedPropertiesTask() {
+        this.setGroup(TASK_GROUP_NAME);
+        this.setDescription(TASK_DESCRIPTION);
+        this.setParallel(true);
+    }
+
+    @Override
+    public void validateOptions() {}
+
+    @Override
+    protected void beforeFilesProcessed() {
+        failures.clear();
+        cancelled.set(false);
+    }
+
+    @Override
+    public String process(PBEStringEncryptor encryptor, String extractedValue) {
+        return ValueOperation.VERIFY.process(encryptor, null, extractedValue);
+    }
+
+    @Override
+    ValueOperation valueOperation() {
+        return ValueOperation.VERIFY;
+    }
+
+    @Override
+    void configureWorkParameters(FileTransformAction.Parameters parameters) {
+        parameters.getReportAll().set(reportAll);
+    }
+
+    @Override
+    public String getPropertyPrefix() {
+        return "ENC(";
+    }
+
+    @Override
+    public String getPropertySuffix() {
+        return ")";
+    }
+
+    @Override
+    public Pattern getDefaultExtractPattern() {
+        return DecryptPropertiesFileTask.DECRYPT_EXTRACTION_REGEX;
+    }
+
+    @Override
+    public String getValueMarker() {
+        return "ENC(";
+    }
+
+    @Override
+    @Internal
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Option(option = "report-all", description = "Check all values and report every failure instead of stopping on the first one")
+    public void setReportAll(boolean reportAll) {
+        this.reportAll = reportAll;
+    }
+
+    @Internal
+    public boolean isReportAll() {
+        return reportAll;
+    }
+
+    @Override
+    protected void onValueFailure(Path file, int lineNumber, RuntimeException cause) {
+        String message = cause.getMessage() != null ? cause.getMessage() : "wrong password, encryptor configuration or corrupted value";
+        failures.add(new ValueFailure(file, lineNumber, message));
+        if (!reportAll) {
+            cancelled.set(true);
+        }
+    }
+
+    @Override
+    protected boolean shouldStopProcessing() {
+        return cancelled.get();
+    }
+
+    @Override
+    protected void afterFilesProcessed() {
+        if (failures.isEmpty()) {
+            return;
+        }
+        List<ValueFailure> sortedFailures = new ArrayList<>(failures);
+        sortedFailures.sort(Comparator.comparing((ValueFailure failure) -> failure.file).thenComparingInt(failure -> failure.lineNumber));
+        String failedValues = sortedFailures.stream()
+                .map((ValueFailure failure) -> failure.file + ":" + failure.lineNumber + " - " + failure.message)
+                .collect(Collectors.joining("\r\n"));
+        throw new GradleException("Found values that can't be decrypted:\r\n" + failedValues);
+    }
+
+    @Override
+    protected String processedValuesLabel() {
+        return "No of values verified";
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XML files. Values are found in text content, attribute values and CDATA sections, while comments, processing
+ * instructions and declarations are skipped. Entities of text and attributes are decoded before processing and
+ * the processed values are escaped again, CDATA content is taken as is.
+ */
+final class XmlFormatHandler extends TextFormatHandler {
+
+    static final String NAME = "xml";
+
+    private static final String COMMENT_START = "<!--";
+    private static final String CDATA_START = "<![CDATA[";
+    private static final String CDATA_END = "]]>";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accepts(String fileName) {
+        return fileName.endsWith(".xml");
+    }
+
+    @Override
+    public List<String> getFileNamePatterns() {
+        return Collections.singletonList("*.xml");
+    }
+
+    @Override
+    protected void collectValues(String text, ValueMatcher valueMatcher, ValueCollector collector) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (text.startsWith(COMMENT_START, i)) {
+                i = indexAfter(text, "-->", i + COMMENT_START.length());
+            } else if (text.startsWith(CDATA_START, i)) {
+                int contentStart = i + CDATA_START.length();
+                int contentEnd = indexOrLength(text, CDATA_END, contentStart);
+                collectRegion(text, contentStart, contentEnd, valueMatcher, (String value) -> value, XmlFormatHandler::escapeCData, collector);
+                i = contentEnd + CDATA_END.length();
+            } else if (text.startsWith("<?", i)) {
+                i = indexAfter(text, "?>", i + 2);
+            } else if (text.startsWith("<!", i)) {
+                i = skipDeclaration(text, i + 2);
+            } else if (text.charAt(i) == '<') {
+                i = scanTag(text, i + 1, valueMatcher, collector);
+            } else {
+                int textEnd = indexOrLength(text, "<", i);
+                collectRegion(text, i, textEnd, valueMatcher, XmlFormatHandler::unescape, (String value) -> escape(value, '\0'), collector);
+                i = textEnd;
+            }
+        }
+    }
+
+    /**
+     * @return index after the closing {@code >} of the tag, attribute values are collected on the way
+     */
+    private static int scanTag(String text, int nameStart, ValueMatcher valueMatcher, ValueCollector collector) {
+        for (int i = nameStart; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == '>') {
+                return i + 1;
+            }
+            if (character == '"' || character == '\'') {
+                int valueStart = i + 1;
+                int valueEnd = indexOrLength(text, String.valueOf(character), valueStart);
+                collectRegion(text, valueStart, valueEnd, valueMatcher, XmlFormatHandler::unescape,
+                        (String value) -> escape(value, character), collector);
+                i = valueEnd;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Skips a declaration like {@code <!DOCTYPE ...>}, including an internal subset in square brackets
+     */
+    private static int skipDeclaration(String text, int from) {
+        int depth = 0;
+        for (int i = from; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character == '[') {
+                depth++;
+            } else if (character == ']') {
+                depth--;
+            } else if (character == '>' && depth <= 0) {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Decodes the predefined entities and character references, other entities are kept as they are
+     */
+    static String unescape(String escaped) {
+        int ampersand = escaped.indexOf('&');
+        if (ampersand < 0) {
+            return escaped;
+        }
+        StringBuilder value = new StringBuilder(escaped.length());
+        int copiedUpTo = 0;
+        while (ampersand >= 0) {
+            int semicolon = escaped.indexOf(';', ampersand);
+            if (semicolon < 0) {
+                break;
+            }
+            String decoded = decodeEntity(escaped.substring(ampersand + 1, semicolon));
+            if (decoded != null) {
+                value.append(escaped, copiedUpTo, ampersand).append(decoded);
+                copiedUpTo = semicolon + 1;
+            }
+            ampersand = escaped.indexOf('&', ampersand + 1);
+        }
+        return value.append(escaped, copiedUpTo, escaped.length()).toString();
+    }
+
+    private static String decodeEntity(String entity) {
+        switch (entity) {
+            case "amp": return "&";
+            case "lt": return "<";
+            case "gt": return ">";
+            case "quot": return "\"";
+            case "apos": return "'";
+            default:
+                if (entity.length() < 2 || entity.charAt(0) != '#') {
+                    return null;
+                }
+                try {
+                    boolean hex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+                    return new String(Character.toChars(Integer.parseInt(entity.substring(hex ? 2 : 1), hex ? 16 : 10)));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+        }
+    }
+
+    /**
+     * @param quote quote of the attribute value that must be escaped, {@code \0} for text content
+     */
+    static String escape(String value, char quote) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            switch (character) {
+                case '&': escaped.append("&amp;"); break;
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '"': escaped.append(quote == '"' ? "&quot;" : "\""); break;
+                case '\'': escaped.append(quote == '\'' ? "&apos;" : "'"); break;
+                default: escaped.append(character);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The CDATA end sequence can't occur inside a section, it is split over two sections
+     */
+    private static String escapeCData(String value) {
+        return value.replace(CDATA_END, "]]" + CDATA_END + CDATA_START + ">");
+    }
+
+    private static int indexAfter(String text, String search, int fromIndex) {
+        int index = text.indexOf(search, fromIndex);
+        return index >= 0 ? index + search.length() : text.length();
+    }
+}
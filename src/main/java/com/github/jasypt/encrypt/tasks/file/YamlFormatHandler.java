@@ -0,0 +1,44 @@
+package com.github.jasypt.encrypt.tasks.file;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * YAML files, with block scalars and multiline quoted scalars
+ */
+final class YamlFormatHandler extends LineFormatHandler {
+
+    static final String NAME = "yaml";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean accepts(String fileName) {
+        return fileName.endsWith(".yml") || fileName.endsWith(".yaml");
+    }
+
+    @Override
+    public List<String> getFileNamePatterns() {
+        return Arrays.asList("*.yml", "*.yaml");
+    }
+
+    @Override
+    protected LineTokenizer newTokenizer(ValueSpanTokenizer.Listener listener) {
+        return new ValueSpanTokenizer(true, listener);
+    }
+
+    @Override
+    public void scanConfig(PropertyFileSource source, Properties target) throws IOException {
+        JasyptConfigScanner.scan(source, true, target);
+    }
+
+    @Override
+    public List<ValueSite> collectConfigSites(PropertyFileSource source, Properties rewrittenConfig) throws IOException {
+        return JasyptConfigScanner.collectConfigSites(source, true, rewrittenConfig);
+    }
+}
@@ -1,7 +1,8 @@
 package com.github.jasypt.encrypt.tasks.text;
 
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+
 import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
-import static com.github.jasypt.encrypt.tasks.JasyptConfig.DEFAULT_JASYPT_CONFIG;
 
 public class DecryptTextTask extends TextAwareTask {
 
@@ -14,9 +15,13 @@ public class DecryptTextTask extends TextAwareTask {
     }
 
     @Override
-    public void taskAction() {
-        String decrypted = initEncryptor(DEFAULT_JASYPT_CONFIG).decrypt(this.text);
-        System.out.println("Decrypted text: " + decrypted);
+    protected String process(PBEStringEncryptor encryptor, String value) {
+        return encryptor.decrypt(value);
+    }
+
+    @Override
+    protected String resultLabel() {
+        return "Decrypted text: ";
     }
 
 }
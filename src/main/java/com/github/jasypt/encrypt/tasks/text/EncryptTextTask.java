@@ -1,6 +1,6 @@
 package com.github.jasypt.encrypt.tasks.text;
 
-import com.github.jasypt.encrypt.tasks.JasyptConfig;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
 
 import static com.github.jasypt.encrypt.JasyptPlugin.TASK_GROUP_NAME;
 
@@ -15,8 +15,12 @@ public class EncryptTextTask extends TextAwareTask {
     }
 
     @Override
-    public void taskAction() {
-        String encrypted = initEncryptor(JasyptConfig.DEFAULT_JASYPT_CONFIG).encrypt(this.text);
-        System.out.println("Encrypted text: " + encrypted);
+    protected String process(PBEStringEncryptor encryptor, String value) {
+        return encryptor.encrypt(value);
+    }
+
+    @Override
+    protected String resultLabel() {
+        return "Encrypted text: ";
     }
 }
@@ -1,24 +1,299 @@
 package com.github.jasypt.encrypt.tasks.text;
 
+import org.gradle.api.GradleException;
+import org.gradle.api.file.Directory;
 import org.gradle.api.internal.tasks.options.OptionValidationException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.options.Option;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import com.github.jasypt.encrypt.runtime.JasyptConfig;
+import com.github.jasypt.encrypt.tasks.JsonStrings;
 import com.github.jasypt.encrypt.tasks.PasswordAwareTask;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public abstract class TextAwareTask extends PasswordAwareTask {
 
-    String text;
+    public static final String STANDARD_STREAM = "-";
+
+    /**
+     * Values in flight per worker thread, bounds the memory used for results waiting to be written in input order
+     */
+    private static final int PENDING_VALUES_PER_THREAD = 64;
+
+    private final Property<String> text = getProject().getObjects().property(String.class);
+    private final Property<String> inputFile = getProject().getObjects().property(String.class);
+    private final Property<String> outputFile = getProject().getObjects().property(String.class);
+    private final Property<BatchFormat> batchFormat = getProject().getObjects().property(BatchFormat.class);
+    private final Property<Integer> parallelism = getProject().getObjects().property(Integer.class);
+    private final Directory projectDirectory = getProject().getLayout().getProjectDirectory();
+
+    public TextAwareTask() {
+        batchFormat.convention(BatchFormat.LINES);
+        parallelism.convention(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the encrypted or decrypted value
+     */
+    protected abstract String process(PBEStringEncryptor encryptor, String value);
+
+    /**
+     * @return prefix of the single value output, like {@code Encrypted text: }
+     */
+    protected abstract String resultLabel();
+
+    @Override
+    public void taskAction() {
+        if (inputFile.isPresent()) {
+            processBatch();
+        } else {
+            System.out.println(resultLabel() + process(initEncryptor(JasyptConfig.DEFAULT_JASYPT_CONFIG), text.get()));
+        }
+    }
+
+    /**
+     * Reads the values one by one, processes them in parallel through one encryptor and writes the results in input
+     * order as soon as the oldest pending value is done. Empty lines are written back as empty lines.
+     */
+    private void processBatch() {
+        int threads = parallelism.get();
+        JasyptConfig batchConfig = new JasyptConfig();
+        batchConfig.setPoolSize(String.valueOf(threads));
+        PBEStringEncryptor encryptor = initEncryptor(batchConfig);
+        BatchFormat format = batchFormat.get();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        long lineNumber = 0;
+        long valueCount = 0;
+        try (BufferedReader reader = new BufferedReader(openInput());
+             Writer writer = new BufferedWriter(openOutput())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long currentLine = ++lineNumber;
+                if (line.trim().isEmpty()) {
+                    pending.add(CompletableFuture.completedFuture(""));
+                } else {
+                    String value = format.decode(line, currentLine);
+                    pending.add(executor.submit(() -> format.encode(processValue(encryptor, value, currentLine))));
+                    valueCount++;
+                }
+                if (pending.size() >= threads * PENDING_VALUES_PER_THREAD) {
+                    writeResult(writer, pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeResult(writer, pending.poll());
+            }
+        } catch (IOException e) {
+            throw new GradleException("Failed to process batch: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!isStandardStream(outputFile.getOrNull())) {
+            System.out.println("No of values processed: " + valueCount);
+        }
+    }
+
+    private String processValue(PBEStringEncryptor encryptor, String value, long lineNumber) {
+        try {
+            return process(encryptor, value);
+        } catch (RuntimeException e) {
+            throw new GradleException("Failed to process value at line " + lineNumber + ": " + e, e);
+        }
+    }
+
+    private static void writeResult(Writer writer, Future<String> result) throws IOException {
+        try {
+            writer.write(result.get());
+            writer.write(System.lineSeparator());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Batch processing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof GradleException ? (GradleException) cause : new GradleException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Standard input is left open, it belongs to the build
+     */
+    private Reader openInput() throws IOException {
+        String input = inputFile.get();
+        if (isStandardStream(input)) {
+            return new InputStreamReader(System.in, StandardCharsets.UTF_8) {
+                @Override
+                public void close() {}
+            };
+        }
+        return Files.newBufferedReader(resolve(input), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Standard output is flushed but left open
+     */
+    private Writer openOutput() throws IOException {
+        String output = outputFile.getOrNull();
+        if (isStandardStream(output)) {
+            return new OutputStreamWriter(System.out, StandardCharsets.UTF_8) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        Path outputPath = resolve(output);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        return Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8);
+    }
+
+    private Path resolve(String path) {
+        return projectDirectory.getAsFile().toPath().resolve(path);
+    }
+
+    private static boolean isStandardStream(String path) {
+        return path == null || STANDARD_STREAM.equals(path);
+    }
 
-    @Option(option = "text", description = "[required]")
+    @Option(option = "text", description = "[required] unless --input-file is set")
     public void setText(String text) {
-        this.text = text;
+        this.text.set(text);
+    }
+
+    /**
+     * Not a task input, the text can be a plain secret
+     */
+    @Internal
+    public Property<String> getText() {
+        return text;
+    }
+
+    @Option(option = "input-file", description = "file with one value per line, relative to the project directory, '-' reads standard input")
+    public void setInputFile(String inputFile) {
+        this.inputFile.set(inputFile);
+    }
+
+    /**
+     * Not a task input, the batch is processed on every run like a single text
+     */
+    @Internal
+    public Property<String> getInputFile() {
+        return inputFile;
+    }
+
+    @Option(option = "output-file", description = "file for the batch results, relative to the project directory, defaults to standard output")
+    public void setOutputFile(String outputFile) {
+        this.outputFile.set(outputFile);
+    }
+
+    @Internal
+    public Property<String> getOutputFile() {
+        return outputFile;
+    }
+
+    @Option(option = "format", description = "batch format: lines (default) or ndjson")
+    public void setFormat(String format) {
+        try {
+            this.batchFormat.set(BatchFormat.valueOf(format.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new OptionValidationException("--format should be one of: lines, ndjson");
+        }
+    }
+
+    @Internal
+    public Property<BatchFormat> getBatchFormat() {
+        return batchFormat;
+    }
+
+    @Option(option = "parallelism", description = "number of threads of the batch, defaults to the number of processors")
+    public void setParallelism(String parallelism) {
+        try {
+            this.parallelism.set(Integer.parseInt(parallelism.trim()));
+        } catch (NumberFormatException e) {
+            throw new OptionValidationException("--parallelism should be a number");
+        }
+    }
+
+    @Internal
+    public Property<Integer> getParallelism() {
+        return parallelism;
     }
 
     @Override
     public void validateOptions() {
-        if (this.text == null || this.text.isEmpty()) {
-            throw new OptionValidationException("--text is needed");
+        String text = this.text.getOrNull();
+        boolean hasText = text != null && !text.isEmpty();
+        if (hasText == inputFile.isPresent()) {
+            throw new OptionValidationException(hasText ? "--text and --input-file can't be used together" : "--text or --input-file is needed");
+        }
+        if (parallelism.get() < 1) {
+            throw new OptionValidationException("--parallelism should be at least 1");
         }
     }
 
+    /**
+     * Layout of the batch input and output, one value per line
+     */
+    public enum BatchFormat {
+
+        /**
+         * Values as they are, the line separator ends a value
+         */
+        LINES {
+            @Override
+            String decode(String line, long lineNumber) {
+                return line;
+            }
+
+            @Override
+            String encode(String value) {
+                return value;
+            }
+        },
+
+        /**
+         * Every line is a JSON string, so values can contain line breaks
+         */
+        NDJSON {
+            @Override
+            String decode(String line, long lineNumber) {
+                try {
+                    return JsonStrings.unquote(line);
+                } catch (IllegalArgumentException e) {
+                    throw new GradleException("Invalid NDJSON value at line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
 
+            @Override
+            String encode(String value) {
+                return JsonStrings.quote(value);
+            }
+        };
+
+        abstract String decode(String line, long lineNumber);
+
+        abstract String encode(String value);
+    }
 }
@@ -0,0 +1,49 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.runtime.AesGcmStringEncryptor
+import org.jasypt.exceptions.EncryptionInitializationException
+import spock.lang.Specification
+
+import java.security.NoSuchProviderException
+
+class AesGcmStringEncryptorSpec extends Specification {
+
+    def "Test decrypt() - keys of other salts are cached up to a fixed count"() {
+        given: "Encryptor with its own salt"
+        def encryptor = newEncryptor(null)
+
+        when: 'Decrypt own values'
+        def ownValue = encryptor.decrypt(encryptor.encrypt('own'))
+
+        then: 'Own key is not part of the cache of other salts'
+        ownValue == 'own'
+        encryptor.@foreignKeys.isEmpty()
+
+        when: 'Decrypt values of more encryptors than the cache holds'
+        def values = (1..AesGcmStringEncryptor.FOREIGN_KEY_CACHE_SIZE + 4).collect {
+            encryptor.decrypt(newEncryptor(null).encrypt("value ${it}".toString()))
+        }
+
+        then: 'Every value is decrypted and the cache stays bounded'
+        values == (1..AesGcmStringEncryptor.FOREIGN_KEY_CACHE_SIZE + 4).collect { "value ${it}".toString() }
+        encryptor.@foreignKeys.size() == AesGcmStringEncryptor.FOREIGN_KEY_CACHE_SIZE
+    }
+
+    def "Test getKey() - key is derived with the configured provider"() {
+        given: "Encryptor with unknown provider"
+        def encryptor = newEncryptor('NoSuchProvider')
+
+        when: 'Derive a key'
+        encryptor.getKey(new byte[16])
+
+        then: 'Provider is used for key derivation'
+        def e = thrown(EncryptionInitializationException)
+        e.cause instanceof NoSuchProviderException
+    }
+
+    private static AesGcmStringEncryptor newEncryptor(String providerName) {
+        def encryptor = new AesGcmStringEncryptor(1000, 'base64', providerName)
+        encryptor.password = 'password'
+        return encryptor
+    }
+}
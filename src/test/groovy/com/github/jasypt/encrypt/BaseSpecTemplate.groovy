@@ -1,7 +1,14 @@
 package com.github.jasypt.encrypt
 
 import groovy.io.FileType
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.logging.events.LogEvent
+import org.gradle.internal.logging.events.OutputEvent
+import org.gradle.internal.logging.events.OutputEventListener
+import org.gradle.internal.logging.slf4j.OutputEventListenerBackedLoggerContext
+import org.junit.After
 import org.junit.Before
+import org.slf4j.LoggerFactory
 import spock.lang.Specification
 
 import java.util.regex.Pattern
@@ -9,11 +16,40 @@ import java.util.regex.Pattern
 class BaseSpecTemplate extends Specification {
 
     static final ByteArrayOutputStream OUT_CONTENT = new ByteArrayOutputStream()
+    static final StringBuffer LOG_CONTENT = new StringBuffer()
+
+    private OutputEventListener originalLogListener
+    private LogLevel originalLogLevel
 
     @Before
     void setup() {
         System.setOut(new PrintStream(OUT_CONTENT))
         OUT_CONTENT.reset()
+        captureLogOutput()
+    }
+
+    @After
+    void cleanup() {
+        def loggerContext = LoggerFactory.getILoggerFactory() as OutputEventListenerBackedLoggerContext
+        loggerContext.setOutputEventListener(originalLogListener)
+        loggerContext.setLevel(originalLogLevel)
+    }
+
+    /**
+     * Task results are logged through the Gradle logger, which is bound to the console on first use,
+     * so they are collected from the logger context instead of System.out
+     */
+    private void captureLogOutput() {
+        LOG_CONTENT.setLength(0)
+        def loggerContext = LoggerFactory.getILoggerFactory() as OutputEventListenerBackedLoggerContext
+        originalLogListener = loggerContext.getOutputEventListener()
+        originalLogLevel = loggerContext.getLevel()
+        loggerContext.setLevel(LogLevel.INFO)
+        loggerContext.setOutputEventListener({ OutputEvent event ->
+            if (event instanceof LogEvent) {
+                LOG_CONTENT.append((event as LogEvent).getMessage()).append('\n')
+            }
+        } as OutputEventListener)
     }
 
     public static final String NEW_LINE_REGEX = "\\r|\\n"
@@ -37,7 +73,7 @@ class BaseSpecTemplate extends Specification {
     }
 
     static boolean checkOutMessage() {
-        def str = OUT_CONTENT.toString().replaceAll(NEW_LINE_REGEX, "")
+        def str = LOG_CONTENT.toString().replaceAll(NEW_LINE_REGEX, "")
         return str.contains('No of files found: 4') &&
         str.contains('No of values changed: 5') &&
         str.contains('Files processed:') &&
@@ -0,0 +1,82 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.file.DecryptPropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.RotatePropertiesFileTask
+import com.tvd12.properties.file.reader.MultiFileReader
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.TempDir
+
+class ConfigurationCacheSpec extends BaseSpecTemplate {
+
+    @TempDir
+    File projectDir
+
+    def "Test taskAction() - files created after the configuration is cached make the task out of date"() {
+        given: "Prepare build with the plugin applied"
+        copyDirectory(new File("src/test/resources"), projectDir)
+        new File(projectDir, 'settings.gradle').text = "rootProject.name = 'configuration-cache-test'\n"
+        new File(projectDir, 'build.gradle').text = "plugins {\n    id 'io.github.ximtech.jasypt-encrypt-plugin'\n}\n"
+
+        when: 'Run until the task is up to date'
+        runEncryptTask()
+        runEncryptTask()
+        def upToDateResult = runEncryptTask()
+
+        then: "Configuration is reused"
+        upToDateResult.output.contains('Configuration cache entry reused')
+        upToDateResult.task(':' + EncryptPropertiesFileTask.TASK_NAME).outcome == TaskOutcome.UP_TO_DATE
+
+        when: "A new file is added"
+        def newFile = new File(projectDir, 'src/main/resources/new.properties')
+        newFile.parentFile.mkdirs()
+        newFile.text = 'new.secret.property=ENCRYPT(private)\n'
+        def result = runEncryptTask()
+
+        then: "The task runs from the cached configuration and processes the new file"
+        result.output.contains('Configuration cache entry reused')
+        result.task(':' + EncryptPropertiesFileTask.TASK_NAME).outcome == TaskOutcome.SUCCESS
+        result.output.contains('No of files found: 4')
+        new MultiFileReader().read(newFile).get('new.secret.property') == 'ENC(XhdGs2swfAc=)'
+    }
+
+    def "Test taskAction() - passwords are read from Gradle properties instead of the configuration cache"() {
+        given: "Prepare build with encrypted values"
+        copyDirectory(new File("src/test/resources"), projectDir)
+        new File(projectDir, 'settings.gradle').text = "rootProject.name = 'configuration-cache-test'\n"
+        new File(projectDir, 'build.gradle').text = "plugins {\n    id 'io.github.ximtech.jasypt-encrypt-plugin'\n}\n"
+        runEncryptTask()
+
+        when: 'Rotate with both passwords given as Gradle properties'
+        def rotateResult = createRunner(RotatePropertiesFileTask.TASK_NAME, '-Pjasypt.encryptor.password=password',
+                '-Pjasypt.encryptor.new-password=newPassword', '--configuration-cache').build()
+
+        then: "Values are rotated"
+        rotateResult.output.contains('No of values rotated: 5')
+
+        when: 'Decrypt with the new password'
+        createRunner(DecryptPropertiesFileTask.TASK_NAME, '-Pjasypt.encryptor.password=newPassword', '--configuration-cache').build()
+
+        then: "Values are decrypted"
+        new MultiFileReader().read(new File(projectDir, 'application.properties')).get('some.very.secret.property') == 'ENCRYPT(private)'
+
+        when: 'Pass the password as option with the configuration cache'
+        def optionResult = createRunner(DecryptPropertiesFileTask.TASK_NAME, '--password=password', '--configuration-cache').buildAndFail()
+
+        then: "Option value is not cached and the failure names the alternatives"
+        optionResult.output.contains('--password is not stored in the configuration cache, set the -Pjasypt.encryptor.password Gradle property')
+    }
+
+    private BuildResult runEncryptTask() {
+        return createRunner(EncryptPropertiesFileTask.TASK_NAME, '-Pjasypt.encryptor.password=password', '--incremental', '--configuration-cache').build()
+    }
+
+    private GradleRunner createRunner(String... arguments) {
+        return GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments(arguments)
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.runtime.EncryptedProperties
+import com.github.jasypt.encrypt.runtime.EncryptorFactory
+import com.github.jasypt.encrypt.runtime.JasyptConfig
+import spock.lang.Specification
+
+class EncryptedPropertiesSpec extends Specification {
+
+    def "Test EncryptedProperties - should decrypt values lazily with the configured encryptor and cache them"() {
+        given: "Properties encrypted with a custom configuration"
+        def config = new JasyptConfig()
+        config.algorithm = 'PBEWITHHMACSHA256ANDAES_128'
+        config.poolSize = '2'
+        def encryptor = EncryptorFactory.create(config, 'password')
+        def properties = new Properties()
+        properties.setProperty('jasypt.encryptor.algorithm', 'PBEWITHHMACSHA256ANDAES_128')
+        properties.setProperty('jasypt.encryptor.pool-size', '2')
+        properties.setProperty('plain', 'public')
+        properties.setProperty('db.password', "ENC(${encryptor.encrypt('secret')})".toString())
+        properties.setProperty('db.url', "jdbc:db?user=ENC(${encryptor.encrypt('admin')})&ssl=true".toString())
+        (1..20).each { properties.setProperty("key.${it}".toString(), "ENC(${encryptor.encrypt("value ${it}")})".toString()) }
+
+        when: 'Wrap the properties and read one value'
+        def encryptedProperties = EncryptedProperties.of(properties, 'password')
+        def password = encryptedProperties.getProperty('db.password')
+
+        then: 'Only the read value is decrypted'
+        password == 'secret'
+        encryptedProperties.encryptedKeys().size() == 22
+        encryptedProperties.pendingCount() == 21
+        encryptedProperties.get('plain') == 'public'
+        encryptedProperties.getProperty('missing', 'default') == 'default'
+        !encryptedProperties.toString().contains('secret')
+
+        when: 'Decrypt the rest in the background'
+        encryptedProperties.decryptInBackground().get()
+
+        then: 'All values are decrypted, every part of a value'
+        encryptedProperties.pendingCount() == 0
+        encryptedProperties.getProperty('db.url') == 'jdbc:db?user=admin&ssl=true'
+        (1..20).every { encryptedProperties.get("key.${it}".toString()) == "value ${it}" }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.benchmark.EncryptorBenchmarkTask
+import org.gradle.testfixtures.ProjectBuilder
+
+class EncryptorBenchmarkTaskSpec extends BaseSpecTemplate {
+
+    def "Test taskAction() - should measure every combination and report the fastest pool size of the configured algorithm"() {
+        given: "Project with encryptor configuration"
+        def project = ProjectBuilder.builder().build()
+        new File(project.rootDir, 'jasypt.properties').text = 'jasypt.encryptor.algorithm=PBEWITHHMACSHA256ANDAES_128\n'
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: 'Benchmark two algorithms and two pool sizes with short rounds'
+        def benchmarkTask = project.tasks.getByName(EncryptorBenchmarkTask.TASK_NAME) as EncryptorBenchmarkTask
+        benchmarkTask.configFile = 'jasypt.properties'
+        benchmarkTask.algorithms = ['PBEWITHHMACSHA256ANDAES_128', 'PBEWITHMD5ANDDES']
+        benchmarkTask.poolSizes = ['1', '2']
+        benchmarkTask.keyObtentionIterations = ['100']
+        benchmarkTask.threads = '2'
+        benchmarkTask.warmupRounds = '0'
+        benchmarkTask.measurementRounds = '1'
+        benchmarkTask.roundMillis = '20'
+        benchmarkTask.validateOptions()
+        benchmarkTask.taskAction()
+
+        then: 'Every combination has a row, no password is needed'
+        def output = OUT_CONTENT.toString()
+        output.readLines().findAll { it.startsWith('PBEWITH') }.size() == 4
+        output.contains('Fastest pool size for PBEWITHHMACSHA256ANDAES_128 with 100 key obtention iterations:')
+        output.contains('set jasypt.encryptor.pool-size=')
+
+        and: 'Benchmark encryptors are not kept by the shared service'
+        benchmarkTask.encryptorService.get().encryptorCount == 0
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.binary.DecryptFileTask
+import com.github.jasypt.encrypt.tasks.binary.EncryptFileTask
+import org.gradle.api.GradleException
+import org.gradle.testfixtures.ProjectBuilder
+
+class FileEncryptDecryptTaskSpec extends BaseSpecTemplate {
+
+    def "Test taskAction() - should encrypt/decrypt binary file segment by segment"() {
+        given: "Prepare project with a binary file spanning several segments"
+        def project = ProjectBuilder.builder().build()
+        def root = project.getRootDir()
+        def content = new byte[5000]
+        new Random(1).nextBytes(content)
+        new File(root, 'keystore.p12').bytes = content
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: 'Encrypt file'
+        def encryptFileTask = project.tasks.getByName(EncryptFileTask.TASK_NAME) as EncryptFileTask
+        encryptFileTask.inputFile = 'keystore.p12'
+        encryptFileTask.segmentSize = '1024'
+        encryptFileTask.password = 'password'
+        encryptFileTask.taskAction()
+
+        then: 'Encrypted file is written next to the input'
+        def encryptedFile = new File(root, 'keystore.p12.enc')
+        encryptedFile.exists()
+        encryptedFile.bytes != content
+        LOG_CONTENT.toString().contains('Encrypted file:')
+
+        when: 'Decrypt file'
+        new File(root, 'keystore.p12').delete()
+        def decryptFileTask = project.tasks.getByName(DecryptFileTask.TASK_NAME) as DecryptFileTask
+        decryptFileTask.inputFile = 'keystore.p12.enc'
+        decryptFileTask.password = 'password'
+        decryptFileTask.taskAction()
+
+        then: 'Output defaults to the input without the .enc extension'
+        new File(root, 'keystore.p12').bytes == content
+
+        when: 'Decrypt modified file'
+        def modified = encryptedFile.bytes
+        def modifiedIndex = modified.length - 100
+        modified[modifiedIndex] = (byte) (modified[modifiedIndex] ^ 1)
+        encryptedFile.bytes = modified
+        decryptFileTask.outputFile = 'modified.p12'
+        decryptFileTask.taskAction()
+
+        then: 'Task fails without leaving output behind'
+        thrown(GradleException)
+        !new File(root, 'modified.p12').exists()
+        root.list().findAll { it.endsWith('.tmp') }.isEmpty()
+
+        when: 'Decrypt file with raised iterations in the header'
+        def raised = new File(root, 'keystore.p12.enc').bytes
+        raised[9] = (byte) 0x7F
+        encryptedFile.bytes = raised
+        decryptFileTask.taskAction()
+
+        then: 'File is rejected before the key is derived'
+        def e = thrown(GradleException)
+        e.message.contains('exceed the limit of 10000')
+        !new File(root, 'modified.p12').exists()
+    }
+}
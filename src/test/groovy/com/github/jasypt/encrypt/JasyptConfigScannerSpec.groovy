@@ -0,0 +1,34 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.file.JasyptConfigScanner
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class JasyptConfigScannerSpec extends Specification {
+
+    def "Test readConfig() - separators, whitespace and line continuations follow java.util.Properties"() {
+        given: "Properties file with spaces around separators and a continued value"
+        def file = Files.createTempFile('jasypt', '.properties')
+        file.toFile().text = '''\
+            # jasypt.encryptor.pool-size=9
+            jasypt.encryptor.algorithm = PBEWITHMD5ANDDES
+            jasypt.encryptor.key-obtention-iterations : 5000
+            jasypt.encryptor.pool-size     4
+            jasypt.encryptor.salt-generator-classname=org.jasypt.salt.\\
+                ZeroSaltGenerator
+            '''.stripIndent()
+
+        when:
+        def config = JasyptConfigScanner.readConfig(file)
+
+        then:
+        config.algorithm == 'PBEWITHMD5ANDDES'
+        config.keyObtentionIterations == '5000'
+        config.poolSize == '4'
+        config.saltGeneratorClassname == 'org.jasypt.salt.ZeroSaltGenerator'
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+}
@@ -1,7 +1,11 @@
 package com.github.jasypt.encrypt
 
+import com.github.jasypt.encrypt.runtime.AesGcmStringEncryptor
 import com.github.jasypt.encrypt.tasks.file.DecryptPropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.RotatePropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.VerifyEncryptedPropertiesTask
 import com.tvd12.properties.file.reader.MultiFileReader
+import org.gradle.api.GradleException
 import org.gradle.testfixtures.ProjectBuilder
 import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask
 
@@ -24,7 +28,7 @@ class PropertiesDecryptSpec extends BaseSpecTemplate {
 
         then: "Check console output"
         checkOutMessage()
-        OUT_CONTENT.reset()
+        LOG_CONTENT.setLength(0)
 
         when: "Decode parameters"
         def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
@@ -49,4 +53,312 @@ class PropertiesDecryptSpec extends BaseSpecTemplate {
         and: "Check console output"
         checkOutMessage()
     }
+
+    def "Test taskAction() - encrypt/decrypt yaml/properties files with aes-gcm mode"() {
+        given: "Prepare project with derive-key-once encryptor mode"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        new File(project.getRootDir(), "config.yaml").text = """
+jasypt:
+  encryptor:
+    mode: "aes-gcm"
+    key-obtention-iterations: 5000
+"""
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: 'Encode properties'
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "Values are encrypted with authenticated encryptor"
+        encryptPropsTask.getEncryptor() instanceof AesGcmStringEncryptor
+        def props = new MultiFileReader().read(new File(project.getRootDir(), "application.properties"))
+        props.get('some.very.secret.property').startsWith('ENC(')
+        props.get('some.very.secret.property') != props.get('in.one.line')
+
+        when: "Decode parameters"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'password'
+        decryptPropsTask.taskAction()
+
+        then: "Check decrypted values"
+        def decryptedProps = new MultiFileReader().read(new File(project.getRootDir(), "application.properties"))
+        decryptedProps.get('some.very.secret.property') == 'ENCRYPT(private)'
+        decryptedProps.get('multiline.encryption') == 'ENCRYPT(privateonetwothree)'
+        def yaml = new MultiFileReader().read(new File(project.getRootDir(), "application.yaml"))
+        yaml.get('some.very.secret.property') == 'ENCRYPT("private")'
+    }
+
+    def "Test taskAction() - verify encrypted yaml/properties files without changing them"() {
+        given: "Prepare project with encrypted properties"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def encryptedProperties = propertiesFile.text
+        LOG_CONTENT.setLength(0)
+
+        when: "Verify encrypted values"
+        def verifyTask = project.tasks.getByName(VerifyEncryptedPropertiesTask.TASK_NAME) as VerifyEncryptedPropertiesTask
+        verifyTask.password = 'password'
+        verifyTask.taskAction()
+
+        then: "All values are verified and files are not changed"
+        LOG_CONTENT.toString().contains("No of values verified: 5")
+        propertiesFile.text == encryptedProperties
+
+        when: "Corrupt one of the values"
+        propertiesFile.text = encryptedProperties.replace('ENC(XhdGs2swfAc=)', 'ENC(XhdGs2sw)')
+        verifyTask.taskAction()
+
+        then: "Failure points to the broken value"
+        def e = thrown(GradleException)
+        e.message.contains("application.properties:1")
+        propertiesFile.text.contains('ENC(XhdGs2sw)')
+    }
+
+    def "Test taskAction() - rotate password of encrypted yaml/properties files"() {
+        given: "Prepare project with encrypted properties"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def encryptedProperties = propertiesFile.text
+        LOG_CONTENT.setLength(0)
+
+        when: "Rotate values to the new password"
+        def rotatePropsTask = project.tasks.getByName(RotatePropertiesFileTask.TASK_NAME) as RotatePropertiesFileTask
+        rotatePropsTask.password = 'password'
+        rotatePropsTask.newPassword = 'newPassword'
+        rotatePropsTask.validateOptions()
+        rotatePropsTask.taskAction()
+
+        then: "All values are re-encrypted"
+        LOG_CONTENT.toString().contains("No of values rotated: 5")
+        propertiesFile.text != encryptedProperties
+        !propertiesFile.text.contains('ENCRYPT(')
+
+        when: "Decode parameters with the new password"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'newPassword'
+        decryptPropsTask.taskAction()
+
+        then: "Original values are restored"
+        def props = new MultiFileReader().read(propertiesFile)
+        props.get('some.very.secret.property') == 'ENCRYPT(private)'
+        props.get('multiline.encryption') == 'ENCRYPT(privateonetwothree)'
+        def yaml = new MultiFileReader().read(new File(project.getRootDir(), "application.yaml"))
+        yaml.get('some.very.secret.property') == 'ENCRYPT("private")'
+    }
+
+    def "Test taskAction() - rotate configuration and rewrite the config keys in the same pass"() {
+        given: "Prepare project with encrypted properties"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def configFile = new File(project.getRootDir(), "config.yaml")
+
+        when: "Rotate values to a new algorithm and key obtention iterations"
+        def rotatePropsTask = project.tasks.getByName(RotatePropertiesFileTask.TASK_NAME) as RotatePropertiesFileTask
+        rotatePropsTask.password = 'password'
+        rotatePropsTask.newPassword = 'password'
+        rotatePropsTask.newAlgorithm = 'PBEWITHMD5ANDTRIPLEDES'
+        rotatePropsTask.newKeyObtentionIterations = '3000'
+        rotatePropsTask.validateOptions()
+        rotatePropsTask.taskAction()
+
+        then: "Changed config keys are rewritten in place"
+        configFile.readLines().contains('    algorithm: "PBEWITHMD5ANDTRIPLEDES"')
+        configFile.readLines().contains('    key-obtention-iterations: 3000')
+        configFile.readLines().contains('    provider-name: "SunJCE"')
+
+        when: "Decode parameters without editing the configuration"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'password'
+        decryptPropsTask.taskAction()
+
+        then: "Original values are restored"
+        new MultiFileReader().read(propertiesFile).get('some.very.secret.property') == 'ENCRYPT(private)'
+    }
+
+    def "Test taskAction() - rotate configuration key that no file sets fails before any file is rewritten"() {
+        given: "Prepare project with encrypted properties and no mode key"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def encryptedProperties = propertiesFile.text
+
+        when: "Rotate values to another mode"
+        def rotatePropsTask = project.tasks.getByName(RotatePropertiesFileTask.TASK_NAME) as RotatePropertiesFileTask
+        rotatePropsTask.password = 'password'
+        rotatePropsTask.newPassword = 'password'
+        rotatePropsTask.newMode = 'aes-gcm'
+        rotatePropsTask.taskAction()
+
+        then: "Missing key is reported and values are unchanged"
+        def e = thrown(GradleException)
+        e.message.contains("'jasypt.encryptor.mode' is not set in any property file")
+        propertiesFile.text == encryptedProperties
+    }
+
+    def "Test taskAction() - encrypt/decrypt every value of a line with nested parentheses"() {
+        given: "Prepare project with several values on one line"
+        def project = ProjectBuilder.builder().build()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def originalProperties = 'url=jdbc:db?user=ENCRYPT(admin)&password=ENCRYPT(pa(ss))\n' +
+                'commented=ENCRYPT(private) # (comment)\n'
+        propertiesFile.text = originalProperties
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: "Encode values"
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "Every value is replaced, text around them is kept"
+        LOG_CONTENT.toString().contains("No of values changed: 3")
+        def encryptedLines = propertiesFile.readLines()
+        encryptedLines[0] ==~ /url=jdbc:db\?user=ENC\([^()]+\)&password=ENC\([^()]+\)/
+        encryptedLines[1] ==~ /commented=ENC\([^()]+\) # \(comment\)/
+
+        when: "Decode values"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'password'
+        decryptPropsTask.taskAction()
+
+        then: "Original line is restored"
+        propertiesFile.text == originalProperties
+    }
+
+    def "Test taskAction() - encrypt/decrypt yaml block scalars with any indicator and multiline quoted scalars"() {
+        given: "Prepare project with folded, chomped and quoted multiline values"
+        def project = ProjectBuilder.builder().build()
+        def yamlFile = new File(project.getRootDir(), "application.yaml")
+        yamlFile.text = 'folded: >-\n' +
+                '  ENCRYPT(some\n' +
+                '  folded)\n' +
+                'kept: |+\n' +
+                '  ENCRYPT(kept)\n' +
+                'quoted: "ENCRYPT(long\n' +
+                '  quoted value)"\n'
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: "Encode values"
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "Block indicators are kept and the quoted scalar is written on one line"
+        LOG_CONTENT.toString().contains("No of values changed: 3")
+        def encryptedLines = yamlFile.readLines()
+        encryptedLines[0] == 'folded: >-'
+        encryptedLines[1] ==~ /  ENC\([^()]+\)/
+        encryptedLines.contains('kept: |+')
+        encryptedLines.last() ==~ /quoted: "ENC\([^()]+\)"/
+
+        when: "Decode values"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'password'
+        decryptPropsTask.taskAction()
+
+        then: "Folded block and quoted lines are joined with a space"
+        yamlFile.readLines() == ['folded: >-', '  ENCRYPT(some folded)', 'kept: |+', '  ENCRYPT(kept)', 'quoted: "ENCRYPT(long quoted value)"']
+    }
+
+    def "Test taskAction() - encrypt/decrypt json, xml and .env values and keep all other bytes"() {
+        given: "Prepare project with json, xml and .env files"
+        def project = ProjectBuilder.builder().build()
+        def jsonFile = new File(project.getRootDir(), "config.json")
+        def xmlFile = new File(project.getRootDir(), "config.xml")
+        def envFile = new File(project.getRootDir(), ".env")
+        def originalJson = '{\n  "ENCRYPT(key)": "ENCRYPT(say \\"hi\\")",\n  "list": ["ENCRYPT(a)", 1]\n}'
+        def originalXml = '<!-- ENCRYPT(comment) -->\n<c user="ENCRYPT(a&amp;b)">\n  <p>ENCRYPT(&lt;p&gt;)</p>\n</c>'
+        def originalEnv = 'export A="ENCRYPT(a)"\r\nB=ENCRYPT(b)\r\n'
+        jsonFile.text = originalJson
+        xmlFile.text = originalXml
+        envFile.text = originalEnv
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: "Encode values"
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.fileFormats = ['env', 'json', 'xml']
+        encryptPropsTask.taskAction()
+
+        then: "Values are encrypted, keys, comments and line endings are kept"
+        LOG_CONTENT.toString().contains("No of values changed: 6")
+        jsonFile.text ==~ /(?s)\{\n  "ENCRYPT\(key\)": "ENC\([^()]+\)",\n  "list": \["ENC\([^()]+\)", 1\]\n}/
+        xmlFile.text.startsWith('<!-- ENCRYPT(comment) -->')
+        !xmlFile.text.contains('&amp;')
+        envFile.text.split('\r\n').every { it.contains('ENC(') }
+
+        when: "Decode values"
+        def decryptPropsTask = project.tasks.getByName(DecryptPropertiesFileTask.TASK_NAME) as DecryptPropertiesFileTask
+        decryptPropsTask.password = 'password'
+        decryptPropsTask.fileFormats = ['env', 'json', 'xml']
+        decryptPropsTask.taskAction()
+
+        then: "Files are restored byte by byte, with values escaped again"
+        jsonFile.text == originalJson
+        xmlFile.text == originalXml
+        envFile.text == originalEnv
+    }
+
+    def "Test taskAction() - only properties and yaml files are processed by default"() {
+        given: "Prepare project with a json file"
+        def project = ProjectBuilder.builder().build()
+        def jsonFile = new File(project.getRootDir(), "config.json")
+        def originalJson = '{"key": "ENCRYPT(value)"}'
+        jsonFile.text = originalJson
+        new File(project.getRootDir(), "application.properties").text = 'key=ENCRYPT(value)\n'
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: "Encode values"
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "The json file is left as is"
+        LOG_CONTENT.toString().contains("No of values changed: 1")
+        jsonFile.text == originalJson
+    }
+
+    def "Test taskAction() - file that is not valid UTF-8 fails instead of being rewritten"() {
+        given: "Prepare project with an ISO-8859-1 encoded value"
+        def project = ProjectBuilder.builder().build()
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def originalBytes = 'key=ENCRYPT(gr\u00fc\u00df)\n'.getBytes('ISO-8859-1')
+        propertiesFile.bytes = originalBytes
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: "Encode values"
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "Task fails and the file is unchanged"
+        def e = thrown(GradleException)
+        e.message.contains('is not valid UTF-8')
+        propertiesFile.bytes == originalBytes
+    }
 }
@@ -2,8 +2,19 @@ package com.github.jasypt.encrypt
 
 import com.tvd12.properties.file.reader.MultiFileReader
 import org.gradle.testfixtures.ProjectBuilder
+import com.github.jasypt.encrypt.runtime.JasyptConfig
 import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask
+import org.jasypt.encryption.pbe.PBEStringEncryptor
 import org.jasypt.encryption.pbe.PooledPBEStringEncryptor
+import org.jasypt.encryption.pbe.StandardPBEStringEncryptor
+import org.jasypt.iv.NoIvGenerator
+import org.jasypt.salt.ZeroSaltGenerator
+
+import java.nio.file.Path
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
 
 class PropertiesEncryptSpec extends BaseSpecTemplate {
 
@@ -53,4 +64,236 @@ class PropertiesEncryptSpec extends BaseSpecTemplate {
         checkOutMessage()
     }
 
+    def "Test taskAction() - encrypt yaml/properties files in parallel mode"() {
+        given: "Prepare project"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+
+        when: 'Encode some properties in parallel'
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.parallel = true
+        encryptPropsTask.parallelism = '3'
+        encryptPropsTask.taskAction()
+
+        then: "Encryptor pool is matched to the parallelism"
+        def encryptor = encryptPropsTask.getEncryptor() as PooledPBEStringEncryptor
+        encryptor.config.poolSize == 3
+
+        and: "Values are the same as in sequential mode"
+        def yaml = new MultiFileReader().read(new File(project.getRootDir(), "application.yaml"))
+        yaml.get('some.very.secret.property') == 'ENC(Lk5VWETH98C0/E/wOqzioQ==)'
+        yaml.get('multiline.property').replaceAll(' ', '') == 'ENC(IRAUw1D6zFD9nhH6dokZajLnT1/2Sezo)'
+
+        def props = new MultiFileReader().read(new File(project.getRootDir(), "application.properties"))
+        props.get('some.very.secret.property') == 'ENC(XhdGs2swfAc=)'
+        props.get('multiline.encryption') == 'ENC(RmMY3yVLNpU6tnFBa9GNDF8HgwysT+tl)'
+
+        and: "Changed values are summed over all files"
+        checkOutMessage()
+    }
+
+    def "Test taskAction() - incremental mode skips unchanged files"() {
+        given: "Prepare project"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: 'Encode properties twice'
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.incremental = true
+        encryptPropsTask.taskAction()
+        LOG_CONTENT.setLength(0)
+        encryptPropsTask.taskAction()
+
+        then: "All files are skipped on the second run"
+        def output = LOG_CONTENT.toString().replaceAll(NEW_LINE_REGEX, "")
+        output.contains('No of files found: 4')
+        output.contains('No of unchanged files skipped: 4')
+        output.contains('No of values changed: 0')
+        encryptPropsTask.manifestFile.exists()
+
+        when: "One file is changed"
+        LOG_CONTENT.setLength(0)
+        new File(project.getRootDir(), "application.properties") << '\nnew.secret.property=ENCRYPT(private)\n'
+        encryptPropsTask.taskAction()
+
+        then: "Only changed file is processed"
+        def changedOutput = LOG_CONTENT.toString().replaceAll(NEW_LINE_REGEX, "")
+        changedOutput.contains('No of unchanged files skipped: 3')
+        changedOutput.contains('No of values changed: 1')
+        new MultiFileReader().read(new File(project.getRootDir(), "application.properties"))
+                .get('new.secret.property') == 'ENC(XhdGs2swfAc=)'
+    }
+
+    def "Test taskAction() - watch mode encrypts values added after the first run"() {
+        given: "Prepare project with a task reporting watch events"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def yamlFile = new File(project.getRootDir(), "application.yaml")
+        def watchTask = project.tasks.register('watchEncryptProperties', WatchEventsTask).get()
+        watchTask.password = 'password'
+        watchTask.watch = true
+        watchTask.watchDebounceMillis = '50'
+
+        when: 'Start watching, then add a value'
+        def watchThread = Thread.start { watchTask.taskAction() }
+        assert watchTask.watchStarted.await(10, TimeUnit.SECONDS)
+        propertiesFile << '\nnew.secret.property=ENCRYPT(private)\n'
+        def firstChanges = watchTask.nextProcessedFileNames()
+        def encryptedContent = propertiesFile.text
+
+        and: 'Change another file, its events come after the ones of the rewrite'
+        yamlFile << '\nwatch.barrier: "value"\n'
+        def laterChanges = []
+        while (!laterChanges.contains('application.yaml')) {
+            laterChanges.addAll(watchTask.nextProcessedFileNames())
+        }
+        watchTask.stopWatching()
+        watchThread.join(5000)
+
+        then: "Only the changed file is processed and the task's own rewrite doesn't trigger another run"
+        !watchThread.alive
+        firstChanges == ['application.properties']
+        laterChanges == ['application.yaml']
+        new MultiFileReader().read(propertiesFile).get('new.secret.property') == 'ENC(XhdGs2swfAc=)'
+        propertiesFile.text == encryptedContent
+        LOG_CONTENT.toString().replaceAll(NEW_LINE_REGEX, "").contains('No of files found: 1')
+    }
+
+    def "Test taskAction() - watch mode initializes the encryptor again when its configuration changes"() {
+        given: "Prepare project with a task reporting watch events"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def configFile = new File(project.getRootDir(), "config.yaml")
+        def watchTask = project.tasks.register('watchEncryptProperties', WatchEventsTask).get()
+        watchTask.password = 'password'
+        watchTask.watch = true
+        watchTask.watchDebounceMillis = '50'
+
+        when: 'Start watching, change the key obtention iterations, then add a value'
+        def watchThread = Thread.start { watchTask.taskAction() }
+        assert watchTask.watchStarted.await(10, TimeUnit.SECONDS)
+        configFile.text = configFile.text.replace('key-obtention-iterations: 2000', 'key-obtention-iterations: 1000')
+        def configChanges = watchTask.nextProcessedFileNames()
+        propertiesFile << '\nnew.secret.property=ENCRYPT(private)\n'
+        def valueChanges = watchTask.nextProcessedFileNames()
+        watchTask.stopWatching()
+        watchThread.join(5000)
+
+        then: "The value is encrypted with the changed configuration"
+        !watchThread.alive
+        configChanges == ['config.yaml']
+        valueChanges == ['application.properties']
+        LOG_CONTENT.toString().contains('Encryptor configuration has changed, the encryptor is initialized again')
+        def expectedEncryptor = new StandardPBEStringEncryptor()
+        expectedEncryptor.algorithm = 'PBEWITHMD5ANDDES'
+        expectedEncryptor.password = 'password'
+        expectedEncryptor.keyObtentionIterations = 1000
+        expectedEncryptor.saltGenerator = new ZeroSaltGenerator()
+        expectedEncryptor.ivGenerator = new NoIvGenerator()
+        def expectedValue = 'ENC(' + expectedEncryptor.encrypt('private') + ')'
+        expectedValue != 'ENC(XhdGs2swfAc=)'
+        new MultiFileReader().read(propertiesFile).get('new.secret.property') == expectedValue
+    }
+
+    def "Test taskAction() - files matched before the encryptor is ready are queued and drained"() {
+        given: "Prepare project with a task whose encryptor initialization waits for a latch"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+        def propertiesFile = new File(project.getRootDir(), "application.properties")
+        def originalProperties = propertiesFile.text
+        def encryptPropsTask = project.tasks.register('blockingEncryptProperties', BlockingEncryptTask).get()
+        encryptPropsTask.password = 'password'
+
+        when: 'Run the task until it waits for the encryptor'
+        def taskThread = Thread.start { encryptPropsTask.taskAction() }
+        waitFor { taskThread.stackTrace.any { it.className.endsWith('AsyncEncryptor') && it.methodName == 'get' } }
+        def unchangedWhileWaiting = propertiesFile.text == originalProperties
+        encryptPropsTask.release.countDown()
+        taskThread.join(10_000)
+
+        then: "All files are matched while waiting and transformed once the encryptor is ready"
+        unchangedWhileWaiting
+        !taskThread.alive
+        new MultiFileReader().read(propertiesFile).get('some.very.secret.property') == 'ENC(XhdGs2swfAc=)'
+        checkOutMessage()
+    }
+
+    static abstract class BlockingEncryptTask extends EncryptPropertiesFileTask {
+
+        final CountDownLatch release = new CountDownLatch(1)
+
+        @Override
+        protected PBEStringEncryptor initEncryptor(JasyptConfig config) {
+            release.await()
+            return super.initEncryptor(config)
+        }
+    }
+
+    static abstract class WatchEventsTask extends EncryptPropertiesFileTask {
+
+        final CountDownLatch watchStarted = new CountDownLatch(1)
+        final BlockingQueue<List<Path>> processedChanges = new LinkedBlockingQueue<>()
+
+        @Override
+        protected void afterWatchStarted(List<Path> watchedPaths) {
+            watchStarted.countDown()
+        }
+
+        @Override
+        protected void afterWatchedChanges(List<Path> processedPaths) {
+            processedChanges.put(processedPaths)
+        }
+
+        List<String> nextProcessedFileNames() {
+            def processedPaths = processedChanges.poll(10, TimeUnit.SECONDS)
+            assert processedPaths != null
+            return processedPaths.collect { it.fileName.toString() }
+        }
+    }
+
+    private static void waitFor(Closure<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 10_000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+        }
+        assert condition()
+    }
+
+    def "Test taskAction() - write performance report"() {
+        given: "Prepare project"
+        File resourceDir = new File("src/test/resources")
+        def project = ProjectBuilder.builder().build()
+        copyDirectory(resourceDir, project.getRootDir())
+        project.getPlugins().apply(JasyptPlugin)
+
+        when: 'Encode some properties'
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        encryptPropsTask.password = 'password'
+        encryptPropsTask.taskAction()
+
+        then: "Report contains counters, phase timings and per file timings"
+        def reportFile = encryptPropsTask.getReportFile()
+        reportFile.path.endsWith("reports${File.separator}jasypt${File.separator}encryptProperties.json")
+        def report = reportFile.text
+        report.contains('"task": "encryptProperties"')
+        report.contains('"valuesProcessed": 5')
+        report.contains('"filesSkippedWithoutValues": 2')
+        ['discovery', 'read', 'match', 'config', 'init', 'crypto', 'write'].every { report.contains("\"${it}\": {\"timeMs\": ") }
+        report.contains('"encryptor": {"calls": 5, "permits": 5')
+        report.contains('{"path": "application.properties", "bytes": ')
+    }
 }
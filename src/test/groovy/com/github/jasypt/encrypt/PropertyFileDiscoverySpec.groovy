@@ -0,0 +1,104 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask
+import org.gradle.testfixtures.ProjectBuilder
+
+class PropertyFileDiscoverySpec extends BaseSpecTemplate {
+
+    def "Test getPropertyFiles() - source dirs, include/exclude globs and .gitignore"() {
+        given: "Prepare project"
+        def project = ProjectBuilder.builder().build()
+        def root = project.getRootDir()
+        writeFile(root, 'src/main/resources/application.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'src/test/resources/application-test.yaml', 'a: ENCRYPT(x)')
+        writeFile(root, 'node_modules/pkg/module.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'vendor/sdk/sdk.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'other/other.yml', 'a: ENCRYPT(x)')
+        writeFile(root, '.gitignore', 'vendor/')
+        project.getPlugins().apply(JasyptPlugin)
+        def encryptPropsTask = project.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+
+        expect: "Whole root directory is searched by default"
+        discoveredFiles(encryptPropsTask, root) == ['other/other.yml', 'src/main/resources/application.properties',
+                                                    'src/test/resources/application-test.yaml', 'vendor/sdk/sdk.properties']
+
+        when: "Walk is restricted to source directories"
+        encryptPropsTask.sourceDirs = ['src/*/resources']
+
+        then:
+        discoveredFiles(encryptPropsTask, root) == ['src/main/resources/application.properties', 'src/test/resources/application-test.yaml']
+
+        when: "Include and exclude globs are set"
+        encryptPropsTask.sourceDirs = []
+        encryptPropsTask.includes = ['**/*.yml', '**/*.yaml']
+        encryptPropsTask.excludes = ['src/test/**']
+
+        then:
+        discoveredFiles(encryptPropsTask, root) == ['other/other.yml']
+
+        when: ".gitignore rules are respected with parallel walk"
+        encryptPropsTask.includes = []
+        encryptPropsTask.excludes = []
+        encryptPropsTask.respectGitIgnore = true
+        encryptPropsTask.parallel = true
+
+        then:
+        discoveredFiles(encryptPropsTask, root) == ['other/other.yml', 'src/main/resources/application.properties',
+                                                    'src/test/resources/application-test.yaml']
+    }
+
+    def "Test getPropertyFiles() - tasks are scoped to their project, aggregate task searches all projects"() {
+        given: "Prepare root project with a subproject"
+        def rootProject = ProjectBuilder.builder().build()
+        def root = rootProject.getRootDir()
+        def appProject = ProjectBuilder.builder().withName('app').withParent(rootProject).withProjectDir(new File(root, 'app')).build()
+        writeFile(root, 'src/main/resources/application.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'app/src/main/resources/application.properties', 'a=ENCRYPT(x)')
+        rootProject.getPlugins().apply(JasyptPlugin)
+        appProject.getPlugins().apply(JasyptPlugin)
+        def rootTask = rootProject.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        def appTask = appProject.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        def aggregateTask = rootProject.tasks.getByName(EncryptPropertiesFileTask.AGGREGATE_TASK_NAME) as EncryptPropertiesFileTask
+
+        expect: "Subproject directories are left to the subproject tasks"
+        discoveredFiles(rootTask, root) == ['src/main/resources/application.properties']
+        discoveredFiles(appTask, root) == ['app/src/main/resources/application.properties']
+
+        and: "Aggregate task is registered in the root project only and finds every file once"
+        appProject.tasks.findByName(EncryptPropertiesFileTask.AGGREGATE_TASK_NAME) == null
+        discoveredFiles(aggregateTask, root) == ['app/src/main/resources/application.properties', 'src/main/resources/application.properties']
+    }
+
+    def "Test getPropertyFiles() - files of subprojects without the plugin are processed by the root project tasks"() {
+        given: "Prepare root project with a subproject that applies the plugin and one that doesn't"
+        def rootProject = ProjectBuilder.builder().build()
+        def root = rootProject.getRootDir()
+        def appProject = ProjectBuilder.builder().withName('app').withParent(rootProject).withProjectDir(new File(root, 'app')).build()
+        ProjectBuilder.builder().withName('docs').withParent(rootProject).withProjectDir(new File(root, 'docs')).build()
+        writeFile(root, 'src/main/resources/application.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'app/src/main/resources/application.properties', 'a=ENCRYPT(x)')
+        writeFile(root, 'docs/src/main/resources/application.properties', 'a=ENCRYPT(x)')
+
+        when: "The root task is created before the subproject applies the plugin"
+        rootProject.getPluginManager().apply(JasyptPlugin.PLUGIN_ID)
+        def rootTask = rootProject.tasks.getByName(EncryptPropertiesFileTask.TASK_NAME) as EncryptPropertiesFileTask
+        appProject.getPluginManager().apply(JasyptPlugin.PLUGIN_ID)
+
+        then: "Only the directory of the subproject with the plugin is skipped"
+        rootTask.nestedProjectDirectories.files == [appProject.projectDir] as Set
+        discoveredFiles(rootTask, root) == ['docs/src/main/resources/application.properties', 'src/main/resources/application.properties']
+    }
+
+    static void writeFile(File root, String path, String content) {
+        def file = new File(root, path)
+        file.parentFile.mkdirs()
+        file.text = content
+    }
+
+    static List<String> discoveredFiles(EncryptPropertiesFileTask task, File root) {
+        return task.propertyFiles.files
+                .collect { root.toPath().relativize(it.toPath()).toString().replace('\\', '/') }
+                .findAll { !it.startsWith('userHome') }
+                .sort()
+    }
+}
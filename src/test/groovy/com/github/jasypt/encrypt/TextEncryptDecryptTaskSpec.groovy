@@ -39,4 +39,60 @@ class TextEncryptDecryptTaskSpec extends BaseSpecTemplate {
         !decodedText.isEmpty()
         decodedText == 'test'
     }
+
+    def "Test taskAction() - tasks of all projects should share encryptors with the same password and config"() {
+        given: "Prepare root project and subproject"
+        def project = ProjectBuilder.builder().build()
+        def subproject = ProjectBuilder.builder().withParent(project).withName('sub').build()
+        project.getPlugins().apply(JasyptPlugin)
+        subproject.getPlugins().apply(JasyptPlugin)
+
+        when: 'Encrypt in root project and decrypt in subproject'
+        def encryptTextTask = project.tasks.getByName(EncryptTextTask.TASK_NAME) as EncryptTextTask
+        encryptTextTask.text = 'test'
+        encryptTextTask.password = 'password'
+        encryptTextTask.taskAction()
+        def encodedText = extractFromOutput(OUT_CONTENT.toString())
+
+        def decryptTextTask = subproject.tasks.getByName(DecryptTextTask.TASK_NAME) as DecryptTextTask
+        decryptTextTask.text = encodedText
+        decryptTextTask.password = 'password'
+        decryptTextTask.taskAction()
+
+        then: 'Encryptor is created once'
+        decryptTextTask.encryptor.is(encryptTextTask.encryptor)
+        encryptTextTask.encryptorService.get().encryptorCount == 1
+        extractFromOutput(OUT_CONTENT.toString()) == 'test'
+    }
+
+    def "Test taskAction() - should encrypt/decrypt a batch of values in input order"() {
+        given: "Prepare project with NDJSON input"
+        def project = ProjectBuilder.builder().build()
+        project.getPlugins().apply(JasyptPlugin)
+        def values = (1..200).collect { it % 50 == 0 ? '' : "\"value $it\\nwith \\\"quotes\\\"\"".toString() }
+        new File(project.projectDir, 'values.ndjson').text = values.join('\n') + '\n'
+
+        when: 'Encrypt and decrypt the batch through files'
+        def encryptTextTask = project.tasks.getByName(EncryptTextTask.TASK_NAME) as EncryptTextTask
+        encryptTextTask.password = 'password'
+        encryptTextTask.inputFile = 'values.ndjson'
+        encryptTextTask.outputFile = 'build/encrypted.ndjson'
+        encryptTextTask.format = 'ndjson'
+        encryptTextTask.parallelism = '4'
+        encryptTextTask.taskAction()
+
+        def decryptTextTask = project.tasks.getByName(DecryptTextTask.TASK_NAME) as DecryptTextTask
+        decryptTextTask.password = 'password'
+        decryptTextTask.inputFile = 'build/encrypted.ndjson'
+        decryptTextTask.outputFile = 'build/decrypted.ndjson'
+        decryptTextTask.format = 'ndjson'
+        decryptTextTask.taskAction()
+
+        then: 'Values are encrypted, empty lines are kept and decrypted values match the input'
+        def encrypted = new File(project.projectDir, 'build/encrypted.ndjson').readLines()
+        encrypted.size() == 200
+        encrypted.findAll { it.isEmpty() }.size() == 4
+        new File(project.projectDir, 'build/decrypted.ndjson').readLines() == values
+        OUT_CONTENT.toString().contains('No of values processed: 196')
+    }
 }
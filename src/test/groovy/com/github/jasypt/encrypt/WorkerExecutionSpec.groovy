@@ -0,0 +1,69 @@
+package com.github.jasypt.encrypt
+
+import com.github.jasypt.encrypt.tasks.file.DecryptPropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.EncryptPropertiesFileTask
+import com.github.jasypt.encrypt.tasks.file.VerifyEncryptedPropertiesTask
+import com.tvd12.properties.file.reader.MultiFileReader
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.TempDir
+
+class WorkerExecutionSpec extends BaseSpecTemplate {
+
+    @TempDir
+    File projectDir
+
+    def "Test taskAction() - files are processed by Gradle workers in a real build"() {
+        given: "Prepare build with the plugin applied"
+        copyDirectory(new File("src/test/resources"), projectDir)
+        new File(projectDir, 'settings.gradle').text = "rootProject.name = 'worker-test'\n"
+        new File(projectDir, 'build.gradle').text = "plugins {\n    id 'io.github.ximtech.jasypt-encrypt-plugin'\n}\n"
+
+        when: 'Run the task through Gradle'
+        def result = GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+                .withArguments(EncryptPropertiesFileTask.TASK_NAME, '--password=password', '--max-workers=2', '--info')
+                .build()
+
+        then: "Every file has been submitted to the worker queue"
+        result.task(':' + EncryptPropertiesFileTask.TASK_NAME).outcome == TaskOutcome.SUCCESS
+        result.output.contains('Submitting 2 files to Gradle workers')
+        result.output.contains('No of values changed: 5')
+        result.output.contains('[application.properties]')
+
+        and: "Values are the same as in process"
+        def props = new MultiFileReader().read(new File(projectDir, 'application.properties'))
+        props.get('some.very.secret.property') == 'ENC(XhdGs2swfAc=)'
+        def yaml = new MultiFileReader().read(new File(projectDir, 'application.yaml'))
+        yaml.get('some.very.secret.property') == 'ENC(Lk5VWETH98C0/E/wOqzioQ==)'
+    }
+
+    def "Test taskAction() - failures of work units are reported like in process"() {
+        given: "Prepare build with values encrypted with another password"
+        new File(projectDir, 'settings.gradle').text = "rootProject.name = 'worker-test'\n"
+        new File(projectDir, 'build.gradle').text = "plugins {\n    id 'io.github.ximtech.jasypt-encrypt-plugin'\n}\n"
+        def propertiesFile = new File(projectDir, 'application.properties')
+        propertiesFile.text = 'first=ENC(XhdGs2swfAc=)\nsecond=ENC(XhdGs2swfAc=)\n'
+        new File(projectDir, 'application.yaml').text = 'third: ENC(XhdGs2swfAc=)\n'
+        def runner = GradleRunner.create()
+                .withProjectDir(projectDir)
+                .withPluginClasspath()
+
+        when: 'Decrypt with the wrong password'
+        def decryptResult = runner.withArguments(DecryptPropertiesFileTask.TASK_NAME, '--password=wrong').buildAndFail()
+
+        then: "Failure of the work unit is the task failure and the file is unchanged"
+        decryptResult.output.contains("Failed to process value at ${propertiesFile.absolutePath}:1")
+        !decryptResult.output.contains('A failure occurred while executing')
+        propertiesFile.text == 'first=ENC(XhdGs2swfAc=)\nsecond=ENC(XhdGs2swfAc=)\n'
+
+        when: 'Verify all values with the wrong password'
+        def verifyResult = runner.withArguments(VerifyEncryptedPropertiesTask.TASK_NAME, '--password=wrong', '--report-all').buildAndFail()
+
+        then: "Failures collected by the work units are reported together"
+        verifyResult.output.contains("${propertiesFile.absolutePath}:1 - ")
+        verifyResult.output.contains("${propertiesFile.absolutePath}:2 - ")
+        verifyResult.output.contains("${new File(projectDir, 'application.yaml').absolutePath}:1 - ")
+    }
+}
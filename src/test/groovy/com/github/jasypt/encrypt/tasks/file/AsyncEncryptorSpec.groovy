@@ -0,0 +1,96 @@
+package com.github.jasypt.encrypt.tasks.file
+
+import com.github.jasypt.encrypt.runtime.JasyptConfig
+import org.jasypt.encryption.pbe.StandardPBEStringEncryptor
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncEncryptorSpec extends Specification {
+
+    def "Test get() - config is resolved and the encryptor initialized on a background thread"() {
+        given: "Config resolution waiting for a latch"
+        def release = new CountDownLatch(1)
+        def encryptor = new StandardPBEStringEncryptor()
+        String initThreadName = null
+
+        when: "Resolution is started"
+        def asyncEncryptor = AsyncEncryptor.start({ ->
+            release.await()
+            JasyptConfig.DEFAULT_JASYPT_CONFIG
+        } as AsyncEncryptor.ConfigResolver, { JasyptConfig config ->
+            initThreadName = Thread.currentThread().name
+            encryptor
+        })
+
+        then: "The caller is not blocked"
+        !asyncEncryptor.isReady()
+
+        when: "Resolution completes"
+        release.countDown()
+
+        then: "Encryptor is handed over"
+        asyncEncryptor.get().is(encryptor)
+        asyncEncryptor.isReady()
+        initThreadName == 'jasypt-encryptor-init'
+    }
+
+    def "Test abandon() - initialization is skipped when abandoned before it has started"() {
+        given: "Config resolution waiting for a latch"
+        def release = new CountDownLatch(1)
+        def initialized = false
+        def asyncEncryptor = AsyncEncryptor.start({ ->
+            release.await()
+            JasyptConfig.DEFAULT_JASYPT_CONFIG
+        } as AsyncEncryptor.ConfigResolver, { JasyptConfig config ->
+            initialized = true
+            new StandardPBEStringEncryptor()
+        })
+
+        when: "Processing fails and the encryptor is abandoned while the config is resolved"
+        def abandoned = new CountDownLatch(1)
+        Thread.start {
+            asyncEncryptor.abandon()
+            abandoned.countDown()
+        }
+        waitFor { asyncEncryptor.@abandoned }
+        def returnedBeforeResolution = abandoned.count == 0
+        release.countDown()
+
+        then: "Abandon waits for the background thread and the encryptor is never initialized"
+        !returnedBeforeResolution
+        abandoned.await(10, TimeUnit.SECONDS)
+        !initialized
+        asyncEncryptor.get() == null
+    }
+
+    def "Test abandon() - failed resolution is ignored when nobody needs the encryptor"() {
+        given: "Config resolution failing"
+        def asyncEncryptor = AsyncEncryptor.start({ ->
+            throw new IOException('config unreadable')
+        } as AsyncEncryptor.ConfigResolver, { JasyptConfig config -> new StandardPBEStringEncryptor() })
+
+        when: "The encryptor is abandoned"
+        asyncEncryptor.abandon()
+
+        then: "No failure is reported"
+        noExceptionThrown()
+        asyncEncryptor.isReady()
+
+        when: "The encryptor is still requested"
+        asyncEncryptor.get()
+
+        then: "The resolution failure is reported"
+        def e = thrown(UncheckedIOException)
+        e.cause.message == 'config unreadable'
+    }
+
+    private static void waitFor(Closure<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 10_000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        assert condition()
+    }
+}